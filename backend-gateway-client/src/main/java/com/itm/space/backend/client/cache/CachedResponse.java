@@ -0,0 +1,20 @@
+package com.itm.space.backend.client.cache;
+
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+
+/**
+ * A successful upstream response body kept with the validators needed to revalidate it.
+ */
+public record CachedResponse(byte[] body, String eTag, MediaType contentType, long lastModified,
+		Instant freshUntil) {
+
+	boolean isFresh(Instant now) {
+		return now.isBefore(freshUntil);
+	}
+
+	CachedResponse revalidated(Instant freshUntil) {
+		return new CachedResponse(body, eTag, contentType, lastModified, freshUntil);
+	}
+}
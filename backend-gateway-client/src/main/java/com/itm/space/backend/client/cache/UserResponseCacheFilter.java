@@ -0,0 +1,233 @@
+package com.itm.space.backend.client.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Local cache of successful GET responses for the user routes, scoped to the authenticated user.
+ * <p>
+ * A fresh entry is answered by the gateway itself. A stale one is revalidated upstream with
+ * {@code If-None-Match}; on 304 the cached bytes are served again and stay fresh for another
+ * {@code timeToLive}. The client's own {@code If-None-Match} is always answered here, with 304
+ * when it matches, so revalidation never re-serializes or re-sends the body.
+ * <p>
+ * A fresh entry is served without reaching the backend, so its {@code @Secured} checks do not run:
+ * a role change or revoked access only applies to this user once the entry goes stale. With a
+ * {@code timeToLive} of zero every request is revalidated upstream, and the backend authorizes it
+ * before answering 304.
+ * <p>
+ * Bodies are buffered only up to {@code maximumBodySize}; a larger body is streamed through
+ * uncached as soon as it crosses the limit.
+ */
+public class UserResponseCacheFilter implements GlobalFilter, Ordered {
+
+	private final Cache<Key, CachedResponse> cache;
+	private final String pathPattern;
+	private final Duration timeToLive;
+	private final long maximumBodySize;
+	private final Clock clock;
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+	private final Counter hits;
+	private final Counter revalidations;
+	private final Counter misses;
+
+	public UserResponseCacheFilter(String pathPattern, Duration timeToLive, Duration maximumAge,
+			long maximumWeight, long maximumBodySize, Clock clock, MeterRegistry registry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((Key key, CachedResponse response) -> response.body().length)
+				.expireAfterWrite(maximumAge)
+				.recordStats()
+				.build();
+		this.pathPattern = pathPattern;
+		this.timeToLive = timeToLive;
+		this.maximumBodySize = maximumBodySize;
+		this.clock = clock;
+		this.hits = requests(registry, "hit");
+		this.revalidations = requests(registry, "revalidated");
+		this.misses = requests(registry, "miss");
+		CaffeineCacheMetrics.monitor(registry, cache, "gateway-responses");
+		Gauge.builder("gateway.response.cache.hit.ratio", this, UserResponseCacheFilter::hitRatio)
+				.description("Share of cacheable requests answered without a full upstream response")
+				.register(registry);
+	}
+
+	@Override
+	public int getOrder() {
+		return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (request.getMethod() != HttpMethod.GET || !pathMatcher.match(pathPattern, request.getPath().value())) {
+			return chain.filter(exchange);
+		}
+		return exchange.getPrincipal()
+				.map(Principal::getName)
+				.defaultIfEmpty("")
+				.flatMap(user -> user.isEmpty()
+						? chain.filter(exchange)
+						: filter(exchange, chain, new Key(user, request.getURI().getRawPath(),
+								request.getURI().getRawQuery(), request.getHeaders().getFirst(HttpHeaders.ACCEPT))));
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Key key) {
+		List<String> clientETags = exchange.getRequest().getHeaders().getIfNoneMatch();
+		CachedResponse cached = cache.getIfPresent(key);
+		if (cached != null && cached.isFresh(clock.instant())) {
+			hits.increment();
+			return write(exchange.getResponse(), cached, clientETags);
+		}
+		ServerHttpRequest upstreamRequest = exchange.getRequest().mutate()
+				.headers(headers -> {
+					headers.remove(HttpHeaders.IF_NONE_MATCH);
+					headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+					if (cached != null) {
+						headers.setIfNoneMatch(cached.eTag());
+					}
+				})
+				.build();
+		ServerHttpResponse response = new CachingResponse(exchange.getResponse(), key, cached, clientETags);
+		return chain.filter(exchange.mutate().request(upstreamRequest).response(response).build());
+	}
+
+	private Mono<Void> write(ServerHttpResponse response, CachedResponse cached, List<String> clientETags) {
+		HttpHeaders headers = response.getHeaders();
+		headers.setETag(cached.eTag());
+		if (cached.lastModified() >= 0) {
+			headers.setLastModified(cached.lastModified());
+		}
+		if (matches(clientETags, cached.eTag())) {
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			headers.remove(HttpHeaders.CONTENT_TYPE);
+			response.setStatusCode(HttpStatus.NOT_MODIFIED);
+			return response.setComplete();
+		}
+		response.setStatusCode(HttpStatus.OK);
+		headers.setContentType(cached.contentType());
+		headers.setContentLength(cached.body().length);
+		return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+	}
+
+	private static boolean matches(List<String> clientETags, String eTag) {
+		for (String candidate : clientETags) {
+			if ("*".equals(candidate) || eTag.equals(candidate.startsWith("W/") ? candidate.substring(2) : candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private double hitRatio() {
+		double served = hits.count() + revalidations.count();
+		double total = served + misses.count();
+		return total == 0 ? 0 : served / total;
+	}
+
+	private static Counter requests(MeterRegistry registry, String result) {
+		return Counter.builder("gateway.response.cache.requests")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	private record Key(String user, String path, String query, String accept) {
+	}
+
+	private class CachingResponse extends ServerHttpResponseDecorator {
+
+		private final Key key;
+		private final CachedResponse cached;
+		private final List<String> clientETags;
+
+		CachingResponse(ServerHttpResponse delegate, Key key, CachedResponse cached, List<String> clientETags) {
+			super(delegate);
+			this.key = key;
+			this.cached = cached;
+			this.clientETags = clientETags;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpStatus status = getStatusCode();
+			if (status == HttpStatus.NOT_MODIFIED && cached != null) {
+				CachedResponse revalidated = cached.revalidated(clock.instant().plus(timeToLive));
+				cache.put(key, revalidated);
+				revalidations.increment();
+				return Flux.from(body).doOnNext(DataBufferUtils::release)
+						.then(write(getDelegate(), revalidated, clientETags));
+			}
+			String eTag = getHeaders().getETag();
+			if (status != HttpStatus.OK || eTag == null) {
+				cache.invalidate(key);
+				return super.writeWith(body);
+			}
+			misses.increment();
+			if (getHeaders().getContentLength() > maximumBodySize) {
+				cache.invalidate(key);
+				return super.writeWith(body);
+			}
+			AtomicLong size = new AtomicLong();
+			return Flux.from(body)
+					.bufferUntil(buffer -> size.addAndGet(buffer.readableByteCount()) > maximumBodySize)
+					.switchOnFirst((first, buffers) -> {
+						Flux<DataBuffer> chunks = buffers.concatMapIterable(Function.identity());
+						if (size.get() > maximumBodySize) {
+							cache.invalidate(key);
+							return getDelegate().writeWith(chunks);
+						}
+						return chunks.collectList().flatMap(buffered -> cacheAndWrite(buffered, eTag));
+					})
+					.then();
+		}
+
+		private Mono<Void> cacheAndWrite(List<DataBuffer> buffered, String eTag) {
+			byte[] bytes = new byte[buffered.stream().mapToInt(DataBuffer::readableByteCount).sum()];
+			int offset = 0;
+			for (DataBuffer buffer : buffered) {
+				int length = buffer.readableByteCount();
+				buffer.read(bytes, offset, length);
+				offset += length;
+				DataBufferUtils.release(buffer);
+			}
+			cache.put(key, new CachedResponse(bytes, eTag, getHeaders().getContentType(),
+					getHeaders().getLastModified(), clock.instant().plus(timeToLive)));
+			if (matches(clientETags, eTag)) {
+				getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+				getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+				setStatusCode(HttpStatus.NOT_MODIFIED);
+				return getDelegate().setComplete();
+			}
+			return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+		}
+	}
+}
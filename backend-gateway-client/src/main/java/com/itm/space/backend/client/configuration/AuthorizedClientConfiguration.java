@@ -0,0 +1,100 @@
+package com.itm.space.backend.client.configuration;
+
+import com.itm.space.backend.client.oauth2.AuthorizedClientRefresher;
+import com.itm.space.backend.client.oauth2.CaffeineAuthorizedClientService;
+import com.itm.space.backend.client.oauth2.SingleFlightAuthorizedClientManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.server.AuthenticatedPrincipalServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.InMemoryWebSessionStore;
+import org.springframework.web.server.session.WebSessionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "gateway.authorized-clients", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AuthorizedClientConfiguration {
+
+	@Value("${gateway.authorized-clients.maximum-memory}")
+	private DataSize maximumMemory;
+	@Value("${gateway.authorized-clients.idle-expiry}")
+	private Duration idleExpiry;
+	@Value("${gateway.authorized-clients.refresh-ahead}")
+	private Duration refreshAhead;
+	@Value("${gateway.authorized-clients.refresh-interval}")
+	private Duration refreshInterval;
+	@Value("${gateway.authorized-clients.maximum-sessions}")
+	private int maximumSessions;
+
+	@Bean
+	public CaffeineAuthorizedClientService authorizedClientService(MeterRegistry meterRegistry) {
+		return new CaffeineAuthorizedClientService(maximumMemory.toBytes(), idleExpiry, Clock.systemUTC(),
+				meterRegistry);
+	}
+
+	@Bean
+	public ServerOAuth2AuthorizedClientRepository authorizedClientRepository(
+			CaffeineAuthorizedClientService authorizedClientService) {
+		return new AuthenticatedPrincipalServerOAuth2AuthorizedClientRepository(authorizedClientService);
+	}
+
+	/**
+	 * Replaces the gateway's manager used by {@code TokenRelay}; tokens count as expired
+	 * {@code refresh-ahead} early so background refreshes actually renew them.
+	 */
+	@Bean
+	public ReactiveOAuth2AuthorizedClientManager authorizedClientManager(
+			ReactiveClientRegistrationRepository clientRegistrations,
+			CaffeineAuthorizedClientService authorizedClientService, MeterRegistry meterRegistry) {
+		AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager manager =
+				new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(clientRegistrations,
+						authorizedClientService);
+		manager.setAuthorizedClientProvider(ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+				.authorizationCode()
+				.refreshToken(refreshToken -> refreshToken.clockSkew(refreshAhead))
+				.build());
+		return new SingleFlightAuthorizedClientManager(manager, meterRegistry);
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "close")
+	public AuthorizedClientRefresher authorizedClientRefresher(CaffeineAuthorizedClientService authorizedClientService,
+			ReactiveOAuth2AuthorizedClientManager authorizedClientManager, MeterRegistry meterRegistry) {
+		return new AuthorizedClientRefresher(authorizedClientService, authorizedClientManager, refreshAhead,
+				refreshInterval, Clock.systemUTC(), meterRegistry);
+	}
+
+	/**
+	 * Caps the in-memory session store Boot configures and reports its size. Done once all
+	 * singletons exist: the session manager comes with the WebFlux configuration, which depends on
+	 * the authorized client beans above, and those need the meter registry.
+	 */
+	@Bean
+	public SmartInitializingSingleton webSessionLimits(ObjectProvider<WebSessionManager> webSessionManager,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		return () -> {
+			if (!(webSessionManager.getIfAvailable() instanceof DefaultWebSessionManager defaultManager)
+					|| !(defaultManager.getSessionStore() instanceof InMemoryWebSessionStore sessionStore)) {
+				return;
+			}
+			sessionStore.setMaxSessions(maximumSessions);
+			meterRegistry.ifAvailable(registry -> Gauge.builder("gateway.sessions", sessionStore,
+							store -> store.getSessions().size())
+					.description("Web sessions held in memory, expired ones included until purged")
+					.register(registry));
+		};
+	}
+}
@@ -0,0 +1,33 @@
+package com.itm.space.backend.client.configuration;
+
+import com.itm.space.backend.client.ratelimit.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "gateway.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfiguration {
+
+	@Value("${gateway.rate-limit.requests-per-second}")
+	private double requestsPerSecond;
+	@Value("${gateway.rate-limit.burst}")
+	private int burst;
+	@Value("${gateway.rate-limit.max-in-flight}")
+	private int maxInFlight;
+	@Value("${gateway.rate-limit.maximum-keys}")
+	private long maximumKeys;
+	@Value("${gateway.rate-limit.idle-expiry}")
+	private Duration idleExpiry;
+
+	@Bean
+	public RateLimitFilter rateLimitFilter(MeterRegistry meterRegistry) {
+		return new RateLimitFilter(requestsPerSecond, burst, maxInFlight, maximumKeys, idleExpiry,
+				Clock.systemUTC(), meterRegistry);
+	}
+}
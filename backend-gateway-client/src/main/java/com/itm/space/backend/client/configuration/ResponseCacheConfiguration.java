@@ -0,0 +1,34 @@
+package com.itm.space.backend.client.configuration;
+
+import com.itm.space.backend.client.cache.UserResponseCacheFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "gateway.response-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheConfiguration {
+
+	@Value("${gateway.response-cache.path-pattern}")
+	private String pathPattern;
+	@Value("${gateway.response-cache.time-to-live}")
+	private Duration timeToLive;
+	@Value("${gateway.response-cache.maximum-age}")
+	private Duration maximumAge;
+	@Value("${gateway.response-cache.maximum-weight}")
+	private DataSize maximumWeight;
+	@Value("${gateway.response-cache.maximum-body-size}")
+	private DataSize maximumBodySize;
+
+	@Bean
+	public UserResponseCacheFilter userResponseCacheFilter(MeterRegistry meterRegistry) {
+		return new UserResponseCacheFilter(pathPattern, timeToLive, maximumAge, maximumWeight.toBytes(),
+				maximumBodySize.toBytes(), Clock.systemUTC(), meterRegistry);
+	}
+}
@@ -0,0 +1,88 @@
+package com.itm.space.backend.client.oauth2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Refreshes access tokens every {@code interval} once they expire within {@code refreshAhead},
+ * so {@code TokenRelay} finds a valid token instead of refreshing it inside the request. Refreshes
+ * go through the same manager as requests, which must treat tokens as expired {@code refreshAhead}
+ * early and collapse concurrent authorizations; a client whose refresh token was rejected is
+ * removed by the manager.
+ */
+public class AuthorizedClientRefresher implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(AuthorizedClientRefresher.class);
+	private static final int CONCURRENCY = 8;
+
+	private final CaffeineAuthorizedClientService authorizedClients;
+	private final ReactiveOAuth2AuthorizedClientManager authorizedClientManager;
+	private final Duration refreshAhead;
+	private final Duration interval;
+	private final Clock clock;
+	private final Counter refreshed;
+	private final Counter failed;
+	private Disposable schedule;
+
+	public AuthorizedClientRefresher(CaffeineAuthorizedClientService authorizedClients,
+			ReactiveOAuth2AuthorizedClientManager authorizedClientManager, Duration refreshAhead, Duration interval,
+			Clock clock, MeterRegistry registry) {
+		this.authorizedClients = authorizedClients;
+		this.authorizedClientManager = authorizedClientManager;
+		this.refreshAhead = refreshAhead;
+		this.interval = interval;
+		this.clock = clock;
+		this.refreshed = refreshes(registry, "success");
+		this.failed = refreshes(registry, "failure");
+	}
+
+	public void start() {
+		schedule = Flux.interval(interval, interval)
+				.onBackpressureDrop()
+				.concatMap(tick -> refreshDue())
+				.subscribe();
+	}
+
+	@Override
+	public void close() {
+		if (schedule != null) {
+			schedule.dispose();
+		}
+	}
+
+	Mono<Void> refreshDue() {
+		return Flux.fromIterable(authorizedClients.refreshCandidates(clock.instant().plus(refreshAhead)))
+				.flatMap(this::refresh, CONCURRENCY)
+				.then();
+	}
+
+	private Mono<OAuth2AuthorizedClient> refresh(OAuth2AuthorizedClient client) {
+		return authorizedClientManager.authorize(OAuth2AuthorizeRequest.withAuthorizedClient(client)
+						.principal(client.getPrincipalName())
+						.build())
+				.doOnSuccess(authorized -> refreshed.increment())
+				.onErrorResume(ex -> {
+					failed.increment();
+					log.warn("Background token refresh for {} failed: {}", client.getPrincipalName(), ex.getMessage());
+					return Mono.empty();
+				});
+	}
+
+	private static Counter refreshes(MeterRegistry registry, String outcome) {
+		return Counter.builder("gateway.authorized.clients.refreshes")
+				.description("Background access token refreshes")
+				.tag("outcome", outcome)
+				.register(registry);
+	}
+}
@@ -0,0 +1,153 @@
+package com.itm.space.backend.client.oauth2;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientId;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authorized clients of logged-in users, held in a local cache bounded by the estimated memory of
+ * their tokens. An entry expires {@code idleExpiry} after the user last relayed a request with
+ * it; saving a refreshed token does not count as use, so background refreshes do not keep idle
+ * users alive.
+ */
+public class CaffeineAuthorizedClientService implements ReactiveOAuth2AuthorizedClientService {
+
+	/**
+	 * Rough heap cost of an entry besides its strings: the client, token and key objects.
+	 */
+	private static final int ENTRY_OVERHEAD = 512;
+
+	private final Cache<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> cache;
+	private final Policy.VarExpiration<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> expiration;
+	private final Duration idleExpiry;
+	private final Clock clock;
+
+	public CaffeineAuthorizedClientService(long maximumWeight, Duration idleExpiry, Clock clock,
+			MeterRegistry registry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((OAuth2AuthorizedClientId id, OAuth2AuthorizedClient client) -> weigh(client))
+				.expireAfter(new IdleExpiry(idleExpiry.toNanos()))
+				.ticker(() -> nanos(clock.instant()))
+				.recordStats()
+				.build();
+		this.expiration = cache.policy().expireVariably().orElseThrow();
+		this.idleExpiry = idleExpiry;
+		this.clock = clock;
+		CaffeineCacheMetrics.monitor(registry, cache, "gateway-authorized-clients");
+		Gauge.builder("gateway.authorized.clients", cache, Cache::estimatedSize)
+				.description("Users with an authorized client held by the gateway")
+				.register(registry);
+		Gauge.builder("gateway.authorized.clients.memory", this, CaffeineAuthorizedClientService::weightedSize)
+				.description("Estimated heap held by authorized clients")
+				.baseUnit("bytes")
+				.register(registry);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T extends OAuth2AuthorizedClient> Mono<T> loadAuthorizedClient(String clientRegistrationId,
+			String principalName) {
+		return Mono.fromSupplier(() -> (T) cache.getIfPresent(new OAuth2AuthorizedClientId(clientRegistrationId,
+				principalName)));
+	}
+
+	@Override
+	public Mono<Void> saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+		return Mono.fromRunnable(() -> cache.put(new OAuth2AuthorizedClientId(
+				authorizedClient.getClientRegistration().getRegistrationId(), principal.getName()), authorizedClient));
+	}
+
+	@Override
+	public Mono<Void> removeAuthorizedClient(String clientRegistrationId, String principalName) {
+		return Mono.fromRunnable(() -> cache.invalidate(new OAuth2AuthorizedClientId(clientRegistrationId,
+				principalName)));
+	}
+
+	/**
+	 * Clients whose access token expires before {@code expiringBefore} and can be refreshed, limited
+	 * to those used since their access token was issued: an idle user gets at most one background
+	 * refresh, and later ones happen on their next request.
+	 */
+	public List<OAuth2AuthorizedClient> refreshCandidates(Instant expiringBefore) {
+		Instant now = clock.instant();
+		List<OAuth2AuthorizedClient> candidates = new ArrayList<>();
+		for (Map.Entry<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> entry : cache.asMap().entrySet()) {
+			OAuth2AuthorizedClient client = entry.getValue();
+			OAuth2AccessToken accessToken = client.getAccessToken();
+			if (client.getRefreshToken() == null || accessToken.getExpiresAt() == null
+					|| !accessToken.getExpiresAt().isBefore(expiringBefore)) {
+				continue;
+			}
+			OptionalLong remaining = expiration.getExpiresAfter(entry.getKey(), TimeUnit.NANOSECONDS);
+			Instant lastUsed = now.minusNanos(idleExpiry.toNanos() - remaining.orElse(0));
+			if (accessToken.getIssuedAt() == null || !lastUsed.isBefore(accessToken.getIssuedAt())) {
+				candidates.add(client);
+			}
+		}
+		return candidates;
+	}
+
+	long weightedSize() {
+		cache.cleanUp();
+		return cache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+	}
+
+	private static int weigh(OAuth2AuthorizedClient client) {
+		int chars = client.getPrincipalName().length() + client.getAccessToken().getTokenValue().length();
+		for (String scope : client.getAccessToken().getScopes()) {
+			chars += scope.length();
+		}
+		if (client.getRefreshToken() != null) {
+			chars += client.getRefreshToken().getTokenValue().length();
+		}
+		// Tokens are ASCII, so compact strings store a byte per character
+		return ENTRY_OVERHEAD + chars;
+	}
+
+	private static long nanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+
+	/**
+	 * Restarts the idle period on creation and reads only.
+	 */
+	private record IdleExpiry(long idleNanos) implements Expiry<OAuth2AuthorizedClientId, OAuth2AuthorizedClient> {
+
+		@Override
+		public long expireAfterCreate(OAuth2AuthorizedClientId id, OAuth2AuthorizedClient client, long currentTime) {
+			return idleNanos;
+		}
+
+		@Override
+		public long expireAfterUpdate(OAuth2AuthorizedClientId id, OAuth2AuthorizedClient client, long currentTime,
+				long currentDuration) {
+			return currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(OAuth2AuthorizedClientId id, OAuth2AuthorizedClient client, long currentTime,
+				long currentDuration) {
+			return idleNanos;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.itm.space.backend.client.oauth2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientId;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shares one authorization, and with it one token refresh, between concurrent requests for the
+ * same user and client registration. Without it, every request arriving while the access token
+ * is expired would redeem the same refresh token, and with refresh token rotation all but the
+ * first would fail.
+ */
+public class SingleFlightAuthorizedClientManager implements ReactiveOAuth2AuthorizedClientManager {
+
+	private final ReactiveOAuth2AuthorizedClientManager delegate;
+	private final Map<OAuth2AuthorizedClientId, Mono<OAuth2AuthorizedClient>> inFlight = new ConcurrentHashMap<>();
+	private final Counter collapsed;
+
+	public SingleFlightAuthorizedClientManager(ReactiveOAuth2AuthorizedClientManager delegate,
+			MeterRegistry registry) {
+		this.delegate = delegate;
+		this.collapsed = Counter.builder("gateway.authorized.clients.collapsed")
+				.description("Authorizations that joined one already in flight for the same user")
+				.register(registry);
+	}
+
+	@Override
+	public Mono<OAuth2AuthorizedClient> authorize(OAuth2AuthorizeRequest authorizeRequest) {
+		return Mono.defer(() -> {
+			OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(authorizeRequest.getClientRegistrationId(),
+					authorizeRequest.getPrincipal().getName());
+			AtomicReference<Mono<OAuth2AuthorizedClient>> self = new AtomicReference<>();
+			Mono<OAuth2AuthorizedClient> authorization = delegate.authorize(authorizeRequest)
+					.doFinally(signal -> inFlight.remove(id, self.get()))
+					.cache();
+			self.set(authorization);
+			Mono<OAuth2AuthorizedClient> existing = inFlight.putIfAbsent(id, authorization);
+			if (existing != null) {
+				collapsed.increment();
+				return existing;
+			}
+			return authorization;
+		});
+	}
+}
@@ -0,0 +1,170 @@
+package com.itm.space.backend.client.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local admission control for routed requests, without a shared store. Each authenticated user
+ * (anonymous requests by remote address) gets a token bucket per route refilled at
+ * {@code requestsPerSecond} and holding up to {@code burst} requests, and optionally at most
+ * {@code maxInFlight} requests in flight per route. Rejected requests get 429 with
+ * {@code Retry-After}. The concurrency limit is checked first, so a request it rejects does not
+ * use up rate budget.
+ * <p>
+ * The bucket is kept as a single theoretical arrival time (GCRA) updated by compare-and-set, so
+ * admission takes no lock, and buckets of different users never contend. Buckets live in a
+ * size-bounded map and are dropped after {@code idleExpiry} without requests. In-flight counts are
+ * kept apart from the buckets, one entry per key with requests in flight, so evicting a bucket
+ * never resets them.
+ */
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+	private final Cache<Key, Limits> limits;
+	private final Map<Key, Integer> inFlight = new ConcurrentHashMap<>();
+	private final long emissionIntervalNanos;
+	private final long burstToleranceNanos;
+	private final int maxInFlight;
+	private final Clock clock;
+	private final Counter allowed;
+	private final Counter rateLimited;
+	private final Counter concurrencyLimited;
+
+	public RateLimitFilter(double requestsPerSecond, int burst, int maxInFlight, long maximumKeys,
+			Duration idleExpiry, Clock clock, MeterRegistry registry) {
+		this.limits = Caffeine.newBuilder()
+				.maximumSize(maximumKeys)
+				.expireAfterAccess(idleExpiry)
+				.build();
+		this.emissionIntervalNanos = (long) (Duration.ofSeconds(1).toNanos() / requestsPerSecond);
+		this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+		this.maxInFlight = maxInFlight;
+		this.clock = clock;
+		this.allowed = requests(registry, "allowed");
+		this.rateLimited = requests(registry, "rate_limited");
+		this.concurrencyLimited = requests(registry, "concurrency_limited");
+		Gauge.builder("gateway.rate.limit.keys", limits, Cache::estimatedSize)
+				.description("Users and routes with a live rate limit bucket")
+				.register(registry);
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 100;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+		String routeId = route != null ? route.getId() : "";
+		return exchange.getPrincipal()
+				.map(Principal::getName)
+				.defaultIfEmpty("")
+				.flatMap(user -> admit(exchange, chain,
+						new Key(user.isEmpty() ? "anonymous:" + remoteAddress(exchange) : user, routeId)));
+	}
+
+	private Mono<Void> admit(ServerWebExchange exchange, GatewayFilterChain chain, Key key) {
+		boolean limitInFlight = maxInFlight > 0;
+		if (limitInFlight && !enter(key)) {
+			concurrencyLimited.increment();
+			return reject(exchange.getResponse(), Duration.ofSeconds(1));
+		}
+		long waitNanos = limits.get(key, k -> new Limits()).acquireToken(now());
+		if (waitNanos > 0) {
+			if (limitInFlight) {
+				leave(key);
+			}
+			rateLimited.increment();
+			return reject(exchange.getResponse(), Duration.ofNanos(waitNanos));
+		}
+		allowed.increment();
+		return limitInFlight ? chain.filter(exchange).doFinally(signal -> leave(key)) : chain.filter(exchange);
+	}
+
+	/**
+	 * @return whether the request fits under {@code maxInFlight} and was counted
+	 */
+	private boolean enter(Key key) {
+		int[] entered = new int[1];
+		inFlight.compute(key, (k, count) -> {
+			entered[0] = count != null ? count + 1 : 1;
+			return entered[0] <= maxInFlight ? Integer.valueOf(entered[0]) : count;
+		});
+		return entered[0] <= maxInFlight;
+	}
+
+	private void leave(Key key) {
+		inFlight.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private static Mono<Void> reject(ServerHttpResponse response, Duration retryAfter) {
+		response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+		response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+		return response.setComplete();
+	}
+
+	private long now() {
+		Instant now = clock.instant();
+		return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+	}
+
+	private static String remoteAddress(ServerWebExchange exchange) {
+		InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+		return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : "unknown";
+	}
+
+	private static Counter requests(MeterRegistry registry, String result) {
+		return Counter.builder("gateway.rate.limit.requests")
+				.description("Routed requests by admission result")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	private record Key(String user, String route) {
+	}
+
+	private class Limits {
+
+		private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+		/**
+		 * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+		 */
+		long acquireToken(long now) {
+			while (true) {
+				long current = theoreticalArrival.get();
+				long start = Math.max(current, now);
+				long wait = start - now - burstToleranceNanos;
+				if (wait > 0) {
+					return wait;
+				}
+				if (theoreticalArrival.compareAndSet(current, start + emissionIntervalNanos)) {
+					return 0;
+				}
+			}
+		}
+	}
+}
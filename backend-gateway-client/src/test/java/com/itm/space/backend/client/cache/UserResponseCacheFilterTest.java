@@ -0,0 +1,185 @@
+package com.itm.space.backend.client.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserResponseCacheFilterTest {
+
+	private static final String BODY = "{\"firstName\":\"John\"}";
+	private static final String ETAG = "\"abc\"";
+
+	private final MutableClock clock = new MutableClock();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final UserResponseCacheFilter filter = new UserResponseCacheFilter("/api/users/**",
+			Duration.ofSeconds(30), Duration.ofMinutes(10), 1024 * 1024, 64 * 1024, clock, meterRegistry);
+	private final List<HttpHeaders> upstreamRequests = new ArrayList<>();
+
+	@Test
+	void filter_ServesFreshEntryWithoutUpstreamCall() {
+		ServerWebExchange first = exchange("john", null);
+		filter.filter(first, upstream(HttpStatus.OK)).block();
+		ServerWebExchange second = exchange("john", null);
+		filter.filter(second, upstream(HttpStatus.OK)).block();
+
+		assertEquals(1, upstreamRequests.size());
+		assertEquals(BODY, response(second).getBodyAsString().block());
+		assertEquals(ETAG, second.getResponse().getHeaders().getETag());
+		assertEquals(0.5, meterRegistry.get("gateway.response.cache.hit.ratio").gauge().value());
+	}
+
+	@Test
+	void filter_ScopesEntriesPerUser() {
+		filter.filter(exchange("john", null), upstream(HttpStatus.OK)).block();
+		filter.filter(exchange("jane", null), upstream(HttpStatus.OK)).block();
+
+		assertEquals(2, upstreamRequests.size());
+	}
+
+	@Test
+	void filter_AnswersMatchingIfNoneMatchLocally() {
+		filter.filter(exchange("john", null), upstream(HttpStatus.OK)).block();
+		ServerWebExchange revalidation = exchange("john", ETAG);
+		filter.filter(revalidation, upstream(HttpStatus.OK)).block();
+
+		assertEquals(HttpStatus.NOT_MODIFIED, revalidation.getResponse().getStatusCode());
+		assertEquals("", response(revalidation).getBodyAsString().defaultIfEmpty("").block());
+		assertEquals(1, upstreamRequests.size());
+	}
+
+	@Test
+	void filter_RevalidatesStaleEntryUpstream() {
+		filter.filter(exchange("john", null), upstream(HttpStatus.OK)).block();
+		clock.advance(Duration.ofMinutes(1));
+		ServerWebExchange stale = exchange("john", null);
+		filter.filter(stale, upstream(HttpStatus.NOT_MODIFIED)).block();
+
+		assertEquals(2, upstreamRequests.size());
+		assertEquals(ETAG, upstreamRequests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(HttpStatus.OK, stale.getResponse().getStatusCode());
+		assertEquals(BODY, response(stale).getBodyAsString().block());
+		assertEquals(1, meterRegistry.get("gateway.response.cache.requests").tag("result", "revalidated")
+				.counter().count());
+	}
+
+	@Test
+	void filter_WithoutTimeToLive_RevalidatesEveryRequestUpstream() {
+		UserResponseCacheFilter revalidating = new UserResponseCacheFilter("/api/users/**",
+				Duration.ZERO, Duration.ofMinutes(10), 1024 * 1024, 64 * 1024, clock, meterRegistry);
+		revalidating.filter(exchange("john", null), upstream(HttpStatus.OK)).block();
+		ServerWebExchange forbidden = exchange("john", null);
+		revalidating.filter(forbidden, upstream(HttpStatus.FORBIDDEN)).block();
+
+		assertEquals(2, upstreamRequests.size());
+		assertEquals(ETAG, upstreamRequests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(HttpStatus.FORBIDDEN, forbidden.getResponse().getStatusCode());
+	}
+
+	@Test
+	void filter_StreamsBodyLargerThanMaximumUncached() {
+		UserResponseCacheFilter small = new UserResponseCacheFilter("/api/users/**",
+				Duration.ofSeconds(30), Duration.ofMinutes(10), 1024 * 1024, 8, clock, meterRegistry);
+		GatewayFilterChain chunked = exchange -> {
+			upstreamRequests.add(exchange.getRequest().getHeaders());
+			ServerHttpResponse response = exchange.getResponse();
+			response.setStatusCode(HttpStatus.OK);
+			response.getHeaders().setETag(ETAG);
+			return response.writeWith(Flux.just("{\"firstName\"", ":\"John\"", "}")
+					.map(chunk -> response.bufferFactory().wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+		};
+		ServerWebExchange first = exchange("john", null);
+		small.filter(first, chunked).block();
+		small.filter(exchange("john", null), chunked).block();
+
+		assertEquals(BODY, response(first).getBodyAsString().block());
+		assertEquals(2, upstreamRequests.size());
+		assertNull(upstreamRequests.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	@Test
+	void filter_BypassesAnonymousRequests() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1"));
+		filter.filter(exchange, upstream(HttpStatus.OK)).block();
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1")), upstream(HttpStatus.OK))
+				.block();
+
+		assertEquals(2, upstreamRequests.size());
+		assertNull(upstreamRequests.get(0).getFirst(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	private ServerWebExchange exchange(String user, String ifNoneMatch) {
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/users/1");
+		if (ifNoneMatch != null) {
+			request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		return MockServerWebExchange.from(request).mutate()
+				.principal(Mono.just(new TestingAuthenticationToken(user, null)))
+				.build();
+	}
+
+	private static MockServerHttpResponse response(ServerWebExchange exchange) {
+		return (MockServerHttpResponse) exchange.getResponse();
+	}
+
+	private GatewayFilterChain upstream(HttpStatus status) {
+		return exchange -> {
+			upstreamRequests.add(exchange.getRequest().getHeaders());
+			ServerHttpResponse response = exchange.getResponse();
+			response.setStatusCode(status);
+			response.getHeaders().setETag(ETAG);
+			if (status == HttpStatus.NOT_MODIFIED) {
+				return response.writeWith(Mono.empty());
+			}
+			response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			return response.writeWith(Mono.just(response.bufferFactory()
+					.wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+		};
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
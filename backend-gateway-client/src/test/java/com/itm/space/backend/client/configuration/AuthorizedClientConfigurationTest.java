@@ -0,0 +1,54 @@
+package com.itm.space.backend.client.configuration;
+
+import com.itm.space.backend.client.oauth2.CaffeineAuthorizedClientService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.InMemoryWebSessionStore;
+import org.springframework.web.server.session.WebSessionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Loads the full application context, with the client registration pointed at fixed endpoints
+ * instead of issuer discovery so that no Keycloak is needed.
+ */
+@SpringBootTest(properties = {
+		"spring.security.oauth2.client.registration.backend-gateway-client.provider=test-provider",
+		"spring.security.oauth2.client.provider.test-provider.authorization-uri=http://localhost:1/auth",
+		"spring.security.oauth2.client.provider.test-provider.token-uri=http://localhost:1/token",
+		"spring.security.oauth2.client.provider.test-provider.jwk-set-uri=http://localhost:1/certs",
+		"spring.security.oauth2.client.provider.test-provider.user-name-attribute=sub",
+		"gateway.authorized-clients.maximum-sessions=123"
+})
+class AuthorizedClientConfigurationTest {
+
+	@Autowired
+	private CaffeineAuthorizedClientService authorizedClientService;
+	@Autowired
+	private ServerOAuth2AuthorizedClientRepository authorizedClientRepository;
+	@Autowired
+	private ReactiveOAuth2AuthorizedClientManager authorizedClientManager;
+	@Autowired
+	private WebSessionManager webSessionManager;
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void contextWiresAuthorizedClientsAndCapsSessions() {
+		assertNotNull(authorizedClientRepository);
+		assertNotNull(authorizedClientManager);
+		assertEquals(0.0, meterRegistry.get("gateway.authorized.clients").gauge().value());
+
+		InMemoryWebSessionStore sessionStore =
+				(InMemoryWebSessionStore) ((DefaultWebSessionManager) webSessionManager).getSessionStore();
+		assertEquals(123, sessionStore.getMaxSessions());
+		assertEquals(0.0, meterRegistry.get("gateway.sessions").gauge().value());
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.itm.space.backend.client.oauth2;
+
+import com.itm.space.backend.client.oauth2.CaffeineAuthorizedClientServiceTest.MutableClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.itm.space.backend.client.oauth2.CaffeineAuthorizedClientServiceTest.REGISTRATION;
+import static com.itm.space.backend.client.oauth2.CaffeineAuthorizedClientServiceTest.client;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuthorizedClientRefresherTest {
+
+	private final MutableClock clock = new MutableClock();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CaffeineAuthorizedClientService service =
+			new CaffeineAuthorizedClientService(1_000_000, Duration.ofMinutes(30), clock, meterRegistry);
+	private final AtomicInteger tokenRequests = new AtomicInteger();
+	private final Sinks.One<OAuth2AccessTokenResponse> tokenEndpoint = Sinks.one();
+
+	@Test
+	void refreshDue_RenewsTokensAboutToExpireAhead() {
+		AuthorizedClientRefresher refresher = refresher();
+		save(client(clock, "john", "token-1", Duration.ofMinutes(5)));
+		save(client(clock, "jane", "token-1", Duration.ofMinutes(30)));
+		tokenEndpoint.tryEmitValue(tokenResponse("token-2"));
+
+		clock.advance(Duration.ofMinutes(4).plusSeconds(30));
+		refresher.refreshDue().block();
+
+		assertEquals("token-2", load("john").getAccessToken().getTokenValue());
+		assertEquals("token-1", load("jane").getAccessToken().getTokenValue());
+		assertEquals(1, tokenRequests.get());
+		assertEquals(1, meterRegistry.get("gateway.authorized.clients.refreshes").tag("outcome", "success")
+				.counter().count());
+	}
+
+	@Test
+	void refreshDue_RemovesClientWhoseRefreshTokenIsRejected() {
+		AuthorizedClientRefresher refresher = refresher();
+		save(client(clock, "john", "token-1", Duration.ofMinutes(5)));
+		tokenEndpoint.tryEmitError(new OAuth2AuthorizationException(new OAuth2Error("invalid_grant")));
+
+		clock.advance(Duration.ofMinutes(4).plusSeconds(30));
+		refresher.refreshDue().block();
+
+		assertNull(load("john"));
+		assertEquals(1, meterRegistry.get("gateway.authorized.clients.refreshes").tag("outcome", "failure")
+				.counter().count());
+	}
+
+	@Test
+	void authorize_CollapsesConcurrentRefreshesForTheSameUser() {
+		ReactiveOAuth2AuthorizedClientManager manager = manager();
+		save(client(clock, "john", "token-1", Duration.ofMinutes(5)));
+		save(client(clock, "jane", "token-1", Duration.ofMinutes(5)));
+		clock.advance(Duration.ofMinutes(5));
+
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			manager.authorize(request("john")).subscribe(client -> tokens.add(client.getAccessToken().getTokenValue()));
+		}
+		manager.authorize(request("jane")).subscribe();
+		tokenEndpoint.tryEmitValue(tokenResponse("token-2"));
+
+		assertEquals(List.of("token-2", "token-2", "token-2"), tokens);
+		assertEquals(2, tokenRequests.get());
+		assertEquals(2, meterRegistry.get("gateway.authorized.clients.collapsed").counter().count());
+
+		assertEquals("token-2", manager.authorize(request("john")).block().getAccessToken().getTokenValue());
+		assertEquals(2, meterRegistry.get("gateway.authorized.clients.collapsed").counter().count());
+	}
+
+	private AuthorizedClientRefresher refresher() {
+		return new AuthorizedClientRefresher(service, manager(), Duration.ofMinutes(1), Duration.ofSeconds(15),
+				clock, meterRegistry);
+	}
+
+	private ReactiveOAuth2AuthorizedClientManager manager() {
+		AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager manager =
+				new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(
+						new InMemoryReactiveClientRegistrationRepository(REGISTRATION), service);
+		manager.setAuthorizedClientProvider(ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+				.refreshToken(refreshToken -> refreshToken
+						.clockSkew(Duration.ofMinutes(1))
+						.clock(clock)
+						.accessTokenResponseClient(grant -> {
+							tokenRequests.incrementAndGet();
+							return tokenEndpoint.asMono();
+						}))
+				.build());
+		return new SingleFlightAuthorizedClientManager(manager, meterRegistry);
+	}
+
+	private static OAuth2AuthorizeRequest request(String user) {
+		return OAuth2AuthorizeRequest.withClientRegistrationId(REGISTRATION.getRegistrationId())
+				.principal(new TestingAuthenticationToken(user, null))
+				.build();
+	}
+
+	private static OAuth2AccessTokenResponse tokenResponse(String token) {
+		return OAuth2AccessTokenResponse.withToken(token)
+				.tokenType(OAuth2AccessToken.TokenType.BEARER)
+				.expiresIn(300)
+				.refreshToken("refresh-" + token)
+				.build();
+	}
+
+	private void save(OAuth2AuthorizedClient client) {
+		service.saveAuthorizedClient(client, new TestingAuthenticationToken(client.getPrincipalName(), null)).block();
+	}
+
+	private OAuth2AuthorizedClient load(String user) {
+		return service.loadAuthorizedClient(REGISTRATION.getRegistrationId(), user).block();
+	}
+}
@@ -0,0 +1,142 @@
+package com.itm.space.backend.client.oauth2;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaffeineAuthorizedClientServiceTest {
+
+	static final ClientRegistration REGISTRATION = ClientRegistration.withRegistrationId("backend-gateway-client")
+			.clientId("backend-gateway-client")
+			.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+			.redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+			.authorizationUri("http://keycloak/auth")
+			.tokenUri("http://keycloak/token")
+			.build();
+
+	private final MutableClock clock = new MutableClock();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void loadAuthorizedClient_ReturnsSavedClientUntilRemoved() {
+		CaffeineAuthorizedClientService service = service(1_000_000);
+		OAuth2AuthorizedClient client = client(clock, "john", "token-1", Duration.ofMinutes(5));
+
+		service.saveAuthorizedClient(client, new TestingAuthenticationToken("john", null)).block();
+
+		assertEquals(client, load(service, "john"));
+		assertNull(load(service, "jane"));
+		service.removeAuthorizedClient(REGISTRATION.getRegistrationId(), "john").block();
+		assertNull(load(service, "john"));
+	}
+
+	@Test
+	void loadAuthorizedClient_ExpiresIdleClientsEvenWhenRefreshedMeanwhile() {
+		CaffeineAuthorizedClientService service = service(1_000_000);
+		save(service, client(clock, "john", "token-1", Duration.ofMinutes(5)));
+
+		clock.advance(Duration.ofMinutes(20));
+		assertNotNull(load(service, "john"));
+		clock.advance(Duration.ofMinutes(20));
+		save(service, client(clock, "john", "token-2", Duration.ofMinutes(5)));
+		clock.advance(Duration.ofMinutes(11));
+
+		assertNull(load(service, "john"));
+	}
+
+	@Test
+	void refreshCandidates_SkipsClientsNotDueOrNotUsedSinceTheirTokenWasIssued() {
+		CaffeineAuthorizedClientService service = service(1_000_000);
+		save(service, client(clock, "john", "token-1", Duration.ofMinutes(5)));
+		save(service, client(clock, "jane", "token-1", Duration.ofMinutes(30)));
+		clock.advance(Duration.ofMinutes(4));
+
+		assertEquals(List.of("john"), names(service.refreshCandidates(clock.instant().plusSeconds(90))));
+
+		save(service, client(clock, "john", "token-2", Duration.ofMinutes(5)));
+		clock.advance(Duration.ofMinutes(4));
+		assertEquals(List.of(), names(service.refreshCandidates(clock.instant().plusSeconds(90))));
+
+		assertNotNull(load(service, "john"));
+		assertEquals(List.of("john"), names(service.refreshCandidates(clock.instant().plusSeconds(90))));
+	}
+
+	@Test
+	void saveAuthorizedClient_EvictsBeyondMaximumMemoryAndReportsIt() {
+		CaffeineAuthorizedClientService service = service(2_000);
+		for (int i = 0; i < 10; i++) {
+			save(service, client(clock, "user-" + i, "x".repeat(300), Duration.ofMinutes(5)));
+		}
+
+		double memory = meterRegistry.get("gateway.authorized.clients.memory").gauge().value();
+		double clients = meterRegistry.get("gateway.authorized.clients").gauge().value();
+		assertTrue(memory > 0 && memory <= 2_000, "memory " + memory);
+		assertTrue(clients < 10, "clients " + clients);
+		assertTrue(meterRegistry.get("cache.evictions").tag("cache", "gateway-authorized-clients")
+				.functionCounter().count() > 0);
+	}
+
+	static OAuth2AuthorizedClient client(Clock clock, String user, String token, Duration lifetime) {
+		Instant issuedAt = clock.instant();
+		return new OAuth2AuthorizedClient(REGISTRATION, user,
+				new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, token, issuedAt, issuedAt.plus(lifetime)),
+				new OAuth2RefreshToken("refresh-" + token, issuedAt));
+	}
+
+	private CaffeineAuthorizedClientService service(long maximumWeight) {
+		return new CaffeineAuthorizedClientService(maximumWeight, Duration.ofMinutes(30), clock, meterRegistry);
+	}
+
+	private static void save(CaffeineAuthorizedClientService service, OAuth2AuthorizedClient client) {
+		service.saveAuthorizedClient(client, new TestingAuthenticationToken(client.getPrincipalName(), null)).block();
+	}
+
+	private static OAuth2AuthorizedClient load(CaffeineAuthorizedClientService service, String user) {
+		return service.loadAuthorizedClient(REGISTRATION.getRegistrationId(), user).block();
+	}
+
+	private static List<String> names(List<OAuth2AuthorizedClient> clients) {
+		return clients.stream().map(OAuth2AuthorizedClient::getPrincipalName).toList();
+	}
+
+	static class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.itm.space.backend.client.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+	private final MutableClock clock = new MutableClock();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private int upstreamRequests;
+
+	@Test
+	void filter_AllowsBurstThenRejectsWithRetryAfter() {
+		RateLimitFilter filter = filter(0);
+
+		for (int i = 0; i < 3; i++) {
+			ServerWebExchange exchange = exchange("john");
+			filter.filter(exchange, upstream()).block();
+			assertNull(exchange.getResponse().getStatusCode());
+		}
+		ServerWebExchange rejected = exchange("john");
+		filter.filter(rejected, upstream()).block();
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(3, upstreamRequests);
+		assertEquals(1, meterRegistry.get("gateway.rate.limit.requests").tag("result", "rate_limited")
+				.counter().count());
+	}
+
+	@Test
+	void filter_RefillsAtConfiguredRate() {
+		RateLimitFilter filter = filter(0);
+		for (int i = 0; i < 3; i++) {
+			filter.filter(exchange("john"), upstream()).block();
+		}
+
+		clock.advance(Duration.ofMillis(500));
+		ServerWebExchange refilled = exchange("john");
+		filter.filter(refilled, upstream()).block();
+		ServerWebExchange rejected = exchange("john");
+		filter.filter(rejected, upstream()).block();
+
+		assertNull(refilled.getResponse().getStatusCode());
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+	}
+
+	@Test
+	void filter_KeepsSeparateBucketsPerUser() {
+		RateLimitFilter filter = filter(0);
+		for (int i = 0; i < 3; i++) {
+			filter.filter(exchange("john"), upstream()).block();
+		}
+
+		ServerWebExchange other = exchange("jane");
+		filter.filter(other, upstream()).block();
+
+		assertNull(other.getResponse().getStatusCode());
+		assertEquals(4, upstreamRequests);
+	}
+
+	@Test
+	void filter_CapsRequestsInFlightPerUser() {
+		RateLimitFilter filter = filter(1);
+		Sinks.Empty<Void> pending = Sinks.empty();
+		filter.filter(exchange("john"), exchange -> pending.asMono()).subscribe();
+
+		ServerWebExchange concurrent = exchange("john");
+		filter.filter(concurrent, upstream()).block();
+		pending.tryEmitEmpty();
+		clock.advance(Duration.ofSeconds(1));
+		ServerWebExchange after = exchange("john");
+		filter.filter(after, upstream()).block();
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, concurrent.getResponse().getStatusCode());
+		assertNull(after.getResponse().getStatusCode());
+		assertEquals(1, meterRegistry.get("gateway.rate.limit.requests").tag("result", "concurrency_limited")
+				.counter().count());
+	}
+
+	@Test
+	void filter_ConcurrencyRejectionKeepsRateBudget() {
+		RateLimitFilter filter = filter(1);
+		Sinks.Empty<Void> pending = Sinks.empty();
+		filter.filter(exchange("john"), exchange -> pending.asMono()).subscribe();
+		for (int i = 0; i < 5; i++) {
+			filter.filter(exchange("john"), upstream()).block();
+		}
+		pending.tryEmitEmpty();
+
+		ServerWebExchange second = exchange("john");
+		filter.filter(second, upstream()).block();
+		ServerWebExchange third = exchange("john");
+		filter.filter(third, upstream()).block();
+
+		assertNull(second.getResponse().getStatusCode());
+		assertNull(third.getResponse().getStatusCode());
+		assertEquals(5, meterRegistry.get("gateway.rate.limit.requests").tag("result", "concurrency_limited")
+				.counter().count());
+	}
+
+	@Test
+	void filter_EvictedBucketKeepsInFlightCount() {
+		RateLimitFilter filter = new RateLimitFilter(2, 3, 1, 1, Duration.ofMinutes(10), clock, meterRegistry);
+		Sinks.Empty<Void> pending = Sinks.empty();
+		filter.filter(exchange("john"), exchange -> pending.asMono()).subscribe();
+		for (int i = 0; i < 10; i++) {
+			filter.filter(exchange("user" + i), upstream()).block();
+		}
+
+		ServerWebExchange concurrent = exchange("john");
+		filter.filter(concurrent, upstream()).block();
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, concurrent.getResponse().getStatusCode());
+	}
+
+	private RateLimitFilter filter(int maxInFlight) {
+		return new RateLimitFilter(2, 3, maxInFlight, 1000, Duration.ofMinutes(10), clock, meterRegistry);
+	}
+
+	private ServerWebExchange exchange(String user) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1")).mutate()
+				.principal(Mono.just(new TestingAuthenticationToken(user, null)))
+				.build();
+	}
+
+	private GatewayFilterChain upstream() {
+		return exchange -> {
+			upstreamRequests++;
+			return Mono.empty();
+		};
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
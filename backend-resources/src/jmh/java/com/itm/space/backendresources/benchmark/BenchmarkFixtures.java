@@ -0,0 +1,50 @@
+package com.itm.space.backendresources.benchmark;
+
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static UserRepresentation userRepresentation() {
+        UserRepresentation user = new UserRepresentation();
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEmail("john.doe@example.com");
+        return user;
+    }
+
+    static List<RoleRepresentation> roles(int count) {
+        List<RoleRepresentation> roles = new ArrayList<>(count);
+        for (String name : names("ROLE_", count)) {
+            RoleRepresentation role = new RoleRepresentation();
+            role.setName(name);
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    static List<GroupRepresentation> groups(int count) {
+        List<GroupRepresentation> groups = new ArrayList<>(count);
+        for (String name : names("Group ", count)) {
+            GroupRepresentation group = new GroupRepresentation();
+            group.setName(name);
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+}
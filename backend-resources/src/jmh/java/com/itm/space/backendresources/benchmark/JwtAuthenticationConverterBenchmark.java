@@ -0,0 +1,71 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.security.KeycloakJwtAuthenticationConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationConverterBenchmark {
+
+    private KeycloakJwtAuthenticationConverter converter;
+    private Jwt cachedToken;
+    private Jwt tokenWithoutId;
+
+    @Setup
+    public void setUp() {
+        converter = new KeycloakJwtAuthenticationConverter(10_000, 1024, Clock.systemUTC(), Ticker.systemTicker());
+        cachedToken = jwt("token-1");
+        tokenWithoutId = jwt(null);
+        converter.convert(cachedToken);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convertCachedToken() {
+        return converter.convert(cachedToken);
+    }
+
+    @Benchmark
+    public Set<GrantedAuthority> resolveCachedToken() {
+        return converter.resolveAuthorities(cachedToken);
+    }
+
+    @Benchmark
+    public Set<GrantedAuthority> resolveByRoleSet() {
+        return converter.resolveAuthorities(tokenWithoutId);
+    }
+
+    private static Jwt jwt(String tokenId) {
+        Jwt.Builder builder = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("0b3c9a4e-5d43-4a55-9f2c-4c8d3d1b5b6e")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("realm_access", Map.of("roles", List.of("MODERATOR", "USER", "offline_access",
+                        "uma_authorization", "default-roles-itm")));
+        return tokenId != null ? builder.jti(tokenId).build() : builder.build();
+    }
+}
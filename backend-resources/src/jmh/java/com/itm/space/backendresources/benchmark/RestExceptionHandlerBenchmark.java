@@ -0,0 +1,72 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.controller.RestExceptionHandler;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestExceptionHandlerBenchmark {
+
+    private final RestExceptionHandler handler = new RestExceptionHandler(new SimpleMeterRegistry());
+    private BackendResourcesException backendResourcesException;
+    private MethodArgumentNotValidException invalidArgument;
+    private JsonParseException unreadableBody;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        backendResourcesException = new BackendResourcesException("User not found", HttpStatus.NOT_FOUND);
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(new Object(), "userRequest");
+        bindingResult.addError(new FieldError("userRequest", "username", "Username should not be blank"));
+        bindingResult.addError(new FieldError("userRequest", "email", "Email should be valid"));
+        bindingResult.addError(new FieldError("userRequest", "password", "Password should be greater than 4 characters long"));
+        MethodParameter parameter = new MethodParameter(
+                RestExceptionHandlerBenchmark.class.getDeclaredMethod("create", UserRequest.class), 0);
+        invalidArgument = new MethodArgumentNotValidException(parameter, bindingResult);
+        unreadableBody = new JsonParseException(null, "Unexpected character ('}' (code 125))");
+    }
+
+    @Benchmark
+    public ResponseEntity<String> backendResourcesException() {
+        return handler.handleException(backendResourcesException);
+    }
+
+    @Benchmark
+    public Map<String, String> invalidArgument() {
+        return handler.handleInvalidArgument(invalidArgument);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> unreadableBody() {
+        return handler.handleUnreadableBody(unreadableBody);
+    }
+
+    @SuppressWarnings("unused")
+    private void create(UserRequest userRequest) {
+    }
+}
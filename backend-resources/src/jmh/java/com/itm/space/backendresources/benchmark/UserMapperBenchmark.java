@@ -0,0 +1,51 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.mapper.UserMapperImpl;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private UserRepresentation user;
+    private List<RoleRepresentation> roles;
+    private List<GroupRepresentation> groups;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkFixtures.userRepresentation();
+        roles = BenchmarkFixtures.roles(size);
+        groups = BenchmarkFixtures.groups(size);
+    }
+
+    @Benchmark
+    public UserResponse userRepresentationToUserResponse() {
+        return userMapper.userRepresentationToUserResponse(user, roles, groups);
+    }
+}
@@ -1,5 +1,6 @@
 package com.itm.space.backendresources;
 
+import com.itm.space.backendresources.configuration.KeycloakClientPreinitializer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,7 +8,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class BackendResourcesApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(BackendResourcesApplication.class, args);
+        SpringApplication application = new SpringApplication(BackendResourcesApplication.class);
+        application.addListeners(new KeycloakClientPreinitializer());
+        application.run(args);
     }
 
 }
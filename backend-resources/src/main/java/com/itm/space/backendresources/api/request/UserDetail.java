@@ -0,0 +1,11 @@
+package com.itm.space.backendresources.api.request;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum UserDetail {
+    ROLES,
+    GROUPS;
+
+    public static final Set<UserDetail> ALL = EnumSet.allOf(UserDetail.class);
+}
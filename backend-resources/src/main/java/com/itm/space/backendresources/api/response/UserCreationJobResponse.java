@@ -0,0 +1,19 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserCreationJobResponse {
+    private final UUID id;
+    private final String status;
+    private final String userId;
+    private final int attempts;
+    private final String error;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+}
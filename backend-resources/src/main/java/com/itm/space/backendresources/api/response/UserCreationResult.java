@@ -0,0 +1,27 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserCreationResult {
+    private final int status;
+    private final String id;
+    private final String error;
+    private final Map<String, String> errors;
+
+    public static UserCreationResult created(String id) {
+        return new UserCreationResult(201, id, null, null);
+    }
+
+    public static UserCreationResult invalid(Map<String, String> errors) {
+        return new UserCreationResult(400, null, null, errors);
+    }
+
+    public static UserCreationResult failed(int status, String error) {
+        return new UserCreationResult(status, null, error, null);
+    }
+}
@@ -1,7 +1,12 @@
 package com.itm.space.backendresources.api.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -9,6 +14,15 @@ public class UserResponse {
     private final String firstName;
     private final String lastName;
     private final String email;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private final List<String> roles;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private final List<String> groups;
+    /**
+     * When this representation was read from Keycloak; served as {@code Last-Modified}.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Instant retrievedAt;
 }
@@ -0,0 +1,12 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+public class UsersResponse {
+    private final Map<UUID, UserResponse> users;
+    private final Map<UUID, String> misses;
+}
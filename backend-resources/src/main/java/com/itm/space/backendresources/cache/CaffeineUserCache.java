@@ -0,0 +1,130 @@
+package com.itm.space.backendresources.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.api.response.UserResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Size-bounded (W-TinyLFU) cache of mapped users. Entries expire after {@code expireAfterWrite};
+ * a hit on an entry older than {@code refreshAfterWrite} still returns the cached value and
+ * Caffeine reloads it on {@code refreshExecutor}, at most once per key at a time.
+ * <p>
+ * The cache only holds the future of a load, so a slow Keycloak lookup never runs inside the
+ * cache's map locks: a miss loads on the calling thread and concurrent callers for the same id
+ * wait for that load.
+ */
+public class CaffeineUserCache implements UserCache, MeterBinder {
+
+    private final AsyncLoadingCache<UUID, Entry> cache;
+
+    public CaffeineUserCache(long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite,
+                             Executor refreshExecutor, Ticker ticker) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .executor(refreshExecutor)
+                .ticker(ticker)
+                .recordStats();
+        if (refreshAfterWrite.toNanos() > 0) {
+            builder.refreshAfterWrite(refreshAfterWrite);
+        }
+        this.cache = builder.buildAsync(new EntryReloader());
+    }
+
+    @Override
+    public UserResponse get(UUID id, Function<UUID, UserResponse> loader) {
+        CompletableFuture<Entry> loading = new CompletableFuture<>();
+        CompletableFuture<Entry> entry = cache.get(id, (key, executor) -> loading);
+        if (entry == loading) {
+            try {
+                loading.complete(new Entry(loader.apply(id),
+                        (key, executor) -> CompletableFuture.supplyAsync(() -> loader.apply(key), executor)));
+            } catch (RuntimeException ex) {
+                loading.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+        return join(entry).user();
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getAsync(UUID id,
+                                                    Function<UUID, CompletableFuture<UserResponse>> loader) {
+        return cache.get(id, (key, executor) -> loader.apply(key)
+                        .thenApply(user -> new Entry(user, (reloadKey, reloadExecutor) -> loader.apply(reloadKey))))
+                .thenApply(Entry::user);
+    }
+
+    @Override
+    public UserResponse getIfPresent(UUID id) {
+        CompletableFuture<Entry> entry = cache.getIfPresent(id);
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally() ? entry.join().user() : null;
+    }
+
+    @Override
+    public void put(UUID id, UserResponse user) {
+        cache.put(id, CompletableFuture.completedFuture(new Entry(user, null)));
+    }
+
+    @Override
+    public void invalidate(UUID id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * @param reloader loads the user again for a refresh; {@code null} for an entry that was
+     *                 {@link #put} without one, which is dropped instead of refreshed
+     */
+    private record Entry(UserResponse user, BiFunction<UUID, Executor, CompletableFuture<UserResponse>> reloader) {
+    }
+
+    /**
+     * Refreshes an entry with the loader it was loaded with. Every miss goes through {@link #get}
+     * or {@link #getAsync} with its own loader, so there is no default load.
+     */
+    private static class EntryReloader implements AsyncCacheLoader<UUID, Entry> {
+
+        @Override
+        public CompletableFuture<? extends Entry> asyncLoad(UUID key, Executor executor) {
+            throw new UnsupportedOperationException("Users are loaded with the loader passed to get");
+        }
+
+        @Override
+        public CompletableFuture<? extends Entry> asyncReload(UUID key, Entry oldValue, Executor executor) {
+            if (oldValue.reloader() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return oldValue.reloader().apply(key, executor)
+                    .thenApply(user -> new Entry(user, oldValue.reloader()));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.itm.space.backendresources.cache;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class NoOpUserCache implements UserCache {
+
+    @Override
+    public UserResponse get(UUID id, Function<UUID, UserResponse> loader) {
+        return loader.apply(id);
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getAsync(UUID id,
+                                                    Function<UUID, CompletableFuture<UserResponse>> loader) {
+        return loader.apply(id);
+    }
+
+    @Override
+    public UserResponse getIfPresent(UUID id) {
+        return null;
+    }
+
+    @Override
+    public void put(UUID id, UserResponse user) {
+    }
+
+    @Override
+    public void invalidate(UUID id) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.itm.space.backendresources.cache;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public interface UserCache {
+
+    UserResponse get(UUID id, Function<UUID, UserResponse> loader);
+
+    /**
+     * {@link #get} for a loader that does not block but returns the pending load.
+     */
+    CompletableFuture<UserResponse> getAsync(UUID id, Function<UUID, CompletableFuture<UserResponse>> loader);
+
+    UserResponse getIfPresent(UUID id);
+
+    void put(UUID id, UserResponse user);
+
+    void invalidate(UUID id);
+
+}
@@ -0,0 +1,68 @@
+package com.itm.space.backendresources.configuration;
+
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.javapoet.CodeBlock;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * AOT processing (the fast-startup build profile) evaluates the {@code @ConditionalOnProperty}
+ * beans once, at build time, so switching one of these modes at runtime would be silently ignored.
+ * This records the values the build was processed with and fails the start of an AOT-processed
+ * context whose environment selects different ones. The fast-startup build takes them from
+ * {@code application-prod.yaml}, so set them there rather than on the command line.
+ */
+public class AotBuildModes implements BeanFactoryInitializationAotProcessor {
+
+    static final List<String> PROPERTIES = List.of(
+            "keycloak.client.mode",
+            "execution.virtual-threads.enabled",
+            "user-cache.enabled",
+            "user-replica.enabled",
+            "membership-index.enabled",
+            "user-creation.async.enabled",
+            "security.jwt.decoder",
+            "springdoc.api-docs.enabled");
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Environment environment = beanFactory.getBean(Environment.class);
+        CodeBlock.Builder arguments = CodeBlock.builder().add("environment");
+        for (String property : PROPERTIES) {
+            arguments.add(", $S, $S", property, environment.getProperty(property));
+        }
+        return (generationContext, code) -> {
+            GeneratedMethod method = code.getMethods().add("verifyAotBuildModes", builder -> builder
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addParameter(Environment.class, "environment")
+                    .addStatement("$T.verify($L)", AotBuildModes.class, arguments.build()));
+            code.addInitializer(method.toMethodReference());
+        };
+    }
+
+    /**
+     * @param buildValues property names, each followed by its value at build time ({@code null} if unset)
+     * @throws IllegalStateException if the environment resolves any of them differently
+     */
+    public static void verify(Environment environment, String... buildValues) {
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < buildValues.length; i += 2) {
+            String property = buildValues[i];
+            String value = environment.getProperty(property);
+            if (!Objects.equals(buildValues[i + 1], value)) {
+                changed.add(property + "=" + value + " (built with " + buildValues[i + 1] + ")");
+            }
+        }
+        if (!changed.isEmpty()) {
+            throw new IllegalStateException("The AOT-processed context was built for other modes, rebuild it with "
+                    + "the modes to run or start without -Dspring.aot.enabled=true: " + String.join(", ", changed));
+        }
+    }
+}
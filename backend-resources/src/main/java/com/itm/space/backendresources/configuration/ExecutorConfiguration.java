@@ -0,0 +1,121 @@
+package com.itm.space.backendresources.configuration;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfiguration {
+    @Value("${keycloak.lookup.pool-size}")
+    private int poolSize;
+    @Value("${keycloak.lookup.queue-capacity}")
+    private int queueCapacity;
+    @Value("${keycloak.lookup.batch-concurrency}")
+    private int batchConcurrency;
+    @Value("${keycloak.resilience.hedge.pool-size}")
+    private int hedgePoolSize;
+    @Value("${keycloak.provisioning.concurrency}")
+    private int provisioningConcurrency;
+    @Value("${execution.virtual-threads.enabled}")
+    private boolean virtualThreads;
+    @Value("${execution.virtual-threads.pinning-guard}")
+    private boolean pinningGuard;
+
+    /**
+     * Serves every Tomcat request on its own virtual thread instead of the bounded
+     * platform-thread pool.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "execution.virtual-threads.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vt-", 0).factory()));
+    }
+
+    /**
+     * Bounded pool for the Keycloak admin calls. When it is saturated the calling
+     * request thread runs the task itself, so load degrades to sequential lookups
+     * instead of failing.
+     * <p>
+     * In virtual-thread mode this stays a platform pool while the pinning guard is on:
+     * the RESTEasy/HttpClient stack and Keycloak's {@code TokenManager} block inside
+     * {@code synchronized} sections, which would pin the carrier threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService keycloakExecutor() {
+        if (virtualThreads && !pinningGuard) {
+            return virtualThreadExecutor("keycloak-vt-");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("keycloak-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs hedged Keycloak reads. Kept apart from {@link #keycloakExecutor()} because the lookups
+     * running there block on these reads. It does not queue: when it is saturated the caller reads
+     * inline without hedging.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService keycloakHedgeExecutor() {
+        if (virtualThreads && !pinningGuard) {
+            return virtualThreadExecutor("keycloak-hedge-vt-");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(hedgePoolSize, hedgePoolSize,
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new CustomizableThreadFactory("keycloak-hedge-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs the per-id lookups of a multi-get. Kept apart from {@link #keycloakExecutor()} because
+     * each lookup blocks on calls submitted there.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchLookupExecutor() {
+        if (virtualThreads) {
+            return virtualThreadExecutor("batch-lookup-vt-");
+        }
+        return new ThreadPoolExecutor(batchConcurrency, batchConcurrency,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("batch-lookup-"));
+    }
+
+    /**
+     * Workers for batch user creation. Callers bound the number of in-flight tasks
+     * to the pool size, so the queue never grows past it.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService userProvisioningExecutor() {
+        if (virtualThreads && !pinningGuard) {
+            return virtualThreadExecutor("user-provisioning-vt-");
+        }
+        return new ThreadPoolExecutor(provisioningConcurrency, provisioningConcurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("user-provisioning-"));
+    }
+
+    private static ExecutorService virtualThreadExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    }
+}
@@ -0,0 +1,18 @@
+package com.itm.space.backendresources.configuration;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Closes the application as soon as it has started, for the class data sharing training run of
+ * the fast-startup build profile, which registers it with {@code -Dcontext.listener.classes}.
+ * Boot 3.2 does the same natively with {@code spring.context.exit=onRefresh}.
+ */
+public class ExitAfterStartup implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
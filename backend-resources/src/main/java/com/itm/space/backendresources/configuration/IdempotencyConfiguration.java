@@ -0,0 +1,24 @@
+package com.itm.space.backendresources.configuration;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.idempotency.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfiguration {
+    @Value("${idempotency.maximum-size}")
+    private long maximumSize;
+    @Value("${idempotency.ttl}")
+    private Duration ttl;
+    @Value("${idempotency.in-flight-timeout}")
+    private Duration inFlightTimeout;
+
+    @Bean
+    public IdempotencyStore idempotencyStore() {
+        return new IdempotencyStore(maximumSize, ttl, inFlightTimeout, Ticker.systemTicker());
+    }
+}
@@ -0,0 +1,121 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.security.CachingJwkSource;
+import com.itm.space.backendresources.security.TimedJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoders;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.SupplierJwtDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Selects how bearer tokens are verified, via {@code security.jwt.decoder}:
+ * <ul>
+ *     <li>{@code issuer} (default) - Spring's decoder, configured from the issuer's discovery
+ *     document fetched in the background during startup (again on first use if that failed) and
+ *     fetching keys on demand;</li>
+ *     <li>{@code cached} - keys held by a {@link CachingJwkSource}, loaded from
+ *     {@code security.jwt.jwk-set-uri} or, when set, {@code security.jwt.jwk-set-file}.</li>
+ * </ul>
+ */
+@Configuration
+public class JwtDecoderConfiguration {
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+    @Value("${security.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+    @Value("${security.jwt.jwk-set-file:}")
+    private String jwkSetFile;
+    @Value("${security.jwt.refresh-interval}")
+    private Duration refreshInterval;
+    @Value("${security.jwt.min-refresh-gap}")
+    private Duration minRefreshGap;
+    @Value("${security.jwt.connect-timeout}")
+    private Duration connectTimeout;
+    @Value("${security.jwt.read-timeout}")
+    private Duration readTimeout;
+
+    @Bean
+    @ConditionalOnProperty(name = "security.jwt.decoder", havingValue = "issuer", matchIfMissing = true)
+    public JwtDecoder issuerJwtDecoder(MeterRegistry meterRegistry) {
+        CustomizableThreadFactory discoveryThreads = new CustomizableThreadFactory("jwt-discovery-");
+        discoveryThreads.setDaemon(true);
+        CompletableFuture<JwtDecoder> discovery = CompletableFuture.supplyAsync(
+                () -> JwtDecoders.fromIssuerLocation(issuerUri), task -> discoveryThreads.newThread(task).start());
+        return new TimedJwtDecoder(new SupplierJwtDecoder(() -> {
+            try {
+                return discovery.join();
+            } catch (CompletionException ex) {
+                return JwtDecoders.fromIssuerLocation(issuerUri);
+            }
+        }), meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "security.jwt.decoder", havingValue = "cached")
+    public CachingJwkSource cachingJwkSource() {
+        return new CachingJwkSource(jwkSetLoader(), refreshInterval, minRefreshGap,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("jwk-refresh-")),
+                Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "security.jwt.decoder", havingValue = "cached")
+    public JwtDecoder cachedJwtDecoder(CachingJwkSource cachingJwkSource, MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, cachingJwkSource));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new TimedJwtDecoder(jwtDecoder, meterRegistry);
+    }
+
+    private Supplier<JWKSet> jwkSetLoader() {
+        if (!jwkSetFile.isBlank()) {
+            File file = new File(jwkSetFile);
+            return () -> {
+                try {
+                    return JWKSet.load(file);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } catch (ParseException ex) {
+                    throw new IllegalStateException("Invalid JWK set in " + file, ex);
+                }
+            };
+        }
+        return () -> {
+            try {
+                return JWKSet.load(new URL(jwkSetUri), (int) connectTimeout.toMillis(),
+                        (int) readTimeout.toMillis(), 0);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (ParseException ex) {
+                throw new IllegalStateException("Invalid JWK set at " + jwkSetUri, ex);
+            }
+        };
+    }
+}
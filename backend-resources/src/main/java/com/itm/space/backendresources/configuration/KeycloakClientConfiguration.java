@@ -1,16 +1,51 @@
 package com.itm.space.backendresources.configuration;
 
+import com.itm.space.backendresources.security.KeycloakTokenManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import org.apache.http.HeaderElement;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.token.TokenService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Form;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
-import static org.keycloak.OAuth2Constants.PASSWORD;
+import static org.keycloak.OAuth2Constants.CLIENT_ID;
+import static org.keycloak.OAuth2Constants.CLIENT_SECRET;
+import static org.keycloak.OAuth2Constants.GRANT_TYPE;
 
 @Configuration
 public class KeycloakClientConfiguration {
+    private static final String MANAGED_TOKEN = "managed-by-KeycloakTokenManager";
+
     @Value("${keycloak.credentials.secret}")
     private String secretKey;
     @Value("${keycloak.resource}")
@@ -20,14 +55,134 @@ public class KeycloakClientConfiguration {
     @Value("${keycloak.realm}")
     private String realm;
 
-    @Bean
-    public Keycloak keycloak() {
+    @Value("${keycloak.http.max-total}")
+    private int maxTotal;
+    @Value("${keycloak.http.max-per-route}")
+    private int maxPerRoute;
+    @Value("${keycloak.http.connect-timeout}")
+    private Duration connectTimeout;
+    @Value("${keycloak.http.read-timeout}")
+    private Duration readTimeout;
+    @Value("${keycloak.http.pool-acquire-timeout}")
+    private Duration poolAcquireTimeout;
+    @Value("${keycloak.http.evict-idle-after}")
+    private Duration evictIdleAfter;
+    @Value("${keycloak.http.keep-alive}")
+    private Duration keepAlive;
+
+    @Value("${keycloak.token.refresh-ahead}")
+    private Duration tokenRefreshAhead;
+    @Value("${keycloak.token.min-backoff}")
+    private Duration tokenMinBackoff;
+    @Value("${keycloak.token.max-backoff}")
+    private Duration tokenMaxBackoff;
+
+    /**
+     * The admin client always installs its own bearer filter; it is given a placeholder token that
+     * {@link KeycloakTokenManager}, running after it, replaces with the managed one.
+     */
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloak(KeycloakTokenManager keycloakTokenManager) {
+        ResteasyClient client = resteasyClient();
+        client.register(keycloakTokenManager, Priorities.USER + 100);
         return KeycloakBuilder.builder()
                 .serverUrl(authUrl)
                 .realm(realm)
-                .grantType(CLIENT_CREDENTIALS)
-                .clientId(clientId)
-                .clientSecret(secretKey)
+                .authorization(MANAGED_TOKEN)
+                .resteasyClient(client)
+                .build();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public KeycloakTokenManager keycloakTokenManager(MeterRegistry meterRegistry) {
+        TokenService tokenService = resteasyClient().target(authUrl).proxy(TokenService.class);
+        Form clientCredentials = new Form()
+                .param(GRANT_TYPE, CLIENT_CREDENTIALS)
+                .param(CLIENT_ID, clientId)
+                .param(CLIENT_SECRET, secretKey);
+        return new KeycloakTokenManager(() -> tokenService.grantToken(realm, clientCredentials.asMap()),
+                tokenRefreshAhead, tokenMinBackoff, tokenMaxBackoff,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("keycloak-token-")),
+                Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient keycloakHttpClient() {
+        return HttpClients.custom()
+                .setConnectionManager(keycloakConnectionManager())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) connectTimeout.toMillis())
+                        .setSocketTimeout((int) readTimeout.toMillis())
+                        .setConnectionRequestTimeout((int) poolAcquireTimeout.toMillis())
+                        .build())
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictIdleConnections(evictIdleAfter.toMillis(), TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager keycloakConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        return connectionManager;
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManagerMetricsBinder keycloakConnectionPoolMetrics() {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(keycloakConnectionManager(), "keycloak");
+    }
+
+    /**
+     * Non-blocking client for the Keycloak admin REST API, sized by the same
+     * {@code keycloak.http.*} settings as the blocking transport.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "keycloak.client.mode", havingValue = "reactive")
+    public WebClient keycloakWebClient(WebClient.Builder webClientBuilder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("keycloak")
+                .maxConnections(maxTotal)
+                .pendingAcquireTimeout(poolAcquireTimeout)
+                .maxIdleTime(evictIdleAfter)
+                .evictInBackground(evictIdleAfter)
+                .metrics(true)
                 .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return webClientBuilder
+                .baseUrl(authUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private ResteasyClient resteasyClient() {
+        return ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                .httpEngine(new ApacheHttpClient43Engine(keycloakHttpClient(), false))
+                .register(JacksonProvider.class, 100)
+                .build();
+    }
+
+    /**
+     * Honors the server's Keep-Alive timeout but never keeps a connection longer than
+     * {@code keycloak.http.keep-alive}.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            BasicHeaderElementIterator elements =
+                    new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (elements.hasNext()) {
+                HeaderElement element = elements.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(Long.parseLong(element.getValue()) * 1000, keepAlive.toMillis());
+                    } catch (NumberFormatException ignored) {
+                        break;
+                    }
+                }
+            }
+            return keepAlive.toMillis();
+        };
     }
 }
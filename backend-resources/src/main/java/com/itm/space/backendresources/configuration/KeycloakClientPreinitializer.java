@@ -0,0 +1,52 @@
+package com.itm.space.backendresources.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.keycloak.admin.client.JacksonProvider;
+import org.keycloak.admin.client.resource.RealmsResource;
+import org.keycloak.admin.client.token.TokenService;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+
+import javax.ws.rs.client.ClientBuilder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads and initializes RESTEasy and the Keycloak admin client proxies on a background thread
+ * while the application context starts, in the manner of Boot's own background preinitializer.
+ * The first RESTEasy client costs over a second of provider discovery and class loading, which
+ * the {@link KeycloakClientConfiguration} beans would otherwise pay on the startup path.
+ * <p>
+ * Only {@code BackendResourcesApplication.main} registers it, so test contexts do not start it.
+ * Disabled, like Boot's, by the {@code spring.backgroundpreinitializer.ignore} system property.
+ */
+@Slf4j
+public class KeycloakClientPreinitializer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final AtomicBoolean started = new AtomicBoolean();
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        if (Boolean.getBoolean("spring.backgroundpreinitializer.ignore") || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(KeycloakClientPreinitializer::preinitialize, "keycloak-preinitializer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void preinitialize() {
+        try {
+            ResteasyClient client = ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                    .register(JacksonProvider.class, 100)
+                    .build();
+            client.target("http://localhost").proxy(TokenService.class);
+            client.target("http://localhost").proxy(RealmsResource.class);
+            client.close();
+        } catch (RuntimeException | LinkageError ex) {
+            // The beans initialize the client themselves
+            log.debug("Keycloak client preinitialization failed: {}", ex.getMessage());
+        }
+    }
+}
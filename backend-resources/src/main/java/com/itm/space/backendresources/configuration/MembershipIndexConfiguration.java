@@ -0,0 +1,48 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.replica.KeycloakUserSync;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class MembershipIndexConfiguration {
+    @Value("${keycloak.realm}")
+    private String realm;
+    @Value("${keycloak.sync.page-size}")
+    private int pageSize;
+    @Value("${membership-index.max-staleness}")
+    private Duration maxStaleness;
+    @Value("${membership-index.refresh-interval}")
+    private Duration refreshInterval;
+    @Value("${membership-index.full-refresh-interval}")
+    private Duration fullRefreshInterval;
+
+    @Bean
+    public KeycloakUserSync keycloakUserSync(Keycloak keycloak, UserMapper userMapper) {
+        return new KeycloakUserSync(keycloak, realm, userMapper, pageSize);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "membership-index", name = "enabled", havingValue = "true")
+    public MembershipIndex membershipIndex(KeycloakUserSync keycloakUserSync) {
+        return new MembershipIndex(keycloakUserSync, maxStaleness, refreshInterval, fullRefreshInterval,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("membership-index-")),
+                Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "membership-index", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public MembershipIndex disabledMembershipIndex() {
+        return MembershipIndex.disabled();
+    }
+}
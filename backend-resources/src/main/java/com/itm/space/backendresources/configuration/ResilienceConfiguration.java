@@ -0,0 +1,125 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import com.itm.space.backendresources.resilience.LatencyWindow;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class ResilienceConfiguration {
+    private static final String KEYCLOAK = "keycloak";
+
+    @Value("${keycloak.resilience.enabled}")
+    private boolean enabled;
+    @Value("${keycloak.resilience.circuit-breaker.failure-rate-threshold}")
+    private float failureRateThreshold;
+    @Value("${keycloak.resilience.circuit-breaker.slow-call-duration}")
+    private Duration slowCallDuration;
+    @Value("${keycloak.resilience.circuit-breaker.slow-call-rate-threshold}")
+    private float slowCallRateThreshold;
+    @Value("${keycloak.resilience.circuit-breaker.sliding-window-size}")
+    private int slidingWindowSize;
+    @Value("${keycloak.resilience.circuit-breaker.minimum-calls}")
+    private int minimumCalls;
+    @Value("${keycloak.resilience.circuit-breaker.wait-in-open-state}")
+    private Duration waitInOpenState;
+    @Value("${keycloak.resilience.circuit-breaker.half-open-calls}")
+    private int halfOpenCalls;
+    @Value("${keycloak.resilience.bulkhead.max-concurrent-calls}")
+    private int maxConcurrentCalls;
+    @Value("${keycloak.resilience.bulkhead.max-wait}")
+    private Duration maxWait;
+    @Value("${keycloak.resilience.retry.max-attempts}")
+    private int maxAttempts;
+    @Value("${keycloak.resilience.retry.initial-backoff}")
+    private Duration initialBackoff;
+    @Value("${keycloak.resilience.retry.multiplier}")
+    private double multiplier;
+    @Value("${keycloak.resilience.retry.jitter}")
+    private double jitter;
+    @Value("${keycloak.resilience.hedge.enabled}")
+    private boolean hedgeEnabled;
+    @Value("${keycloak.resilience.hedge.percentile}")
+    private double hedgePercentile;
+    @Value("${keycloak.resilience.hedge.min-delay}")
+    private Duration hedgeMinDelay;
+    @Value("${keycloak.lookup.timeout}")
+    private Duration lookupTimeout;
+
+    @Bean
+    public CircuitBreakerRegistry keycloakCircuitBreakerRegistry() {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(KeycloakResilience::isUpstreamFailure)
+                .build());
+    }
+
+    @Bean
+    public BulkheadRegistry keycloakBulkheadRegistry() {
+        return BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+    }
+
+    @Bean
+    public RetryRegistry keycloakRetryRegistry() {
+        return RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(initialBackoff, multiplier, jitter))
+                .retryOnException(KeycloakResilience::isUpstreamFailure)
+                .build());
+    }
+
+    @Bean
+    public KeycloakResilience keycloakResilience(
+            @Qualifier("keycloakHedgeExecutor") ExecutorService keycloakHedgeExecutor, MeterRegistry meterRegistry) {
+        if (!enabled) {
+            return new KeycloakResilience(null, null, null, null, meterRegistry);
+        }
+        CircuitBreaker circuitBreaker = keycloakCircuitBreakerRegistry().circuitBreaker(KEYCLOAK);
+        Bulkhead bulkhead = keycloakBulkheadRegistry().bulkhead(KEYCLOAK);
+        Retry retry = keycloakRetryRegistry().retry(KEYCLOAK);
+        KeycloakResilience.Hedging hedging = hedgeEnabled
+                ? new KeycloakResilience.Hedging(hedgePercentile, hedgeMinDelay, lookupTimeout, keycloakHedgeExecutor,
+                        new LatencyWindow(1024, Duration.ofSeconds(1).toNanos()))
+                : null;
+        return new KeycloakResilience(circuitBreaker, bulkhead, retry, hedging, meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder keycloakResilienceMetrics() {
+        return registry -> {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(keycloakCircuitBreakerRegistry()).bindTo(registry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(keycloakBulkheadRegistry()).bindTo(registry);
+            TaggedRetryMetrics.ofRetryRegistry(keycloakRetryRegistry()).bindTo(registry);
+        };
+    }
+}
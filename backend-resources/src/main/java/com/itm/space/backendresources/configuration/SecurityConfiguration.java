@@ -1,26 +1,26 @@
 package com.itm.space.backendresources.configuration;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.security.KeycloakJwtAuthenticationConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.time.Clock;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
 public class SecurityConfiguration {
+    @Value("${security.authorities-cache.maximum-tokens}")
+    private long maximumTokens;
+    @Value("${security.authorities-cache.maximum-role-sets}")
+    private long maximumRoleSets;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -30,18 +30,13 @@ public class SecurityConfiguration {
                         .anyRequest().permitAll())
                 .oauth2ResourceServer()
                 .jwt()
-                .jwtAuthenticationConverter(SecurityConfiguration::convertJwtToken);
+                .jwtAuthenticationConverter(jwtAuthenticationConverter());
         return http.build();
     }
 
-    private static JwtAuthenticationToken convertJwtToken(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = new ArrayList<>();
-        JwtAuthenticationToken authenticationToken = new JwtAuthenticationToken(jwt, authorities);
-        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
-        List<String> roles = (List<String>) realmAccess.get("roles");
-        for (String role : roles) {
-            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-        }
-        return new JwtAuthenticationToken(jwt, authorities, authenticationToken.getName());
+    @Bean
+    public KeycloakJwtAuthenticationConverter jwtAuthenticationConverter() {
+        return new KeycloakJwtAuthenticationConverter(maximumTokens, maximumRoleSets,
+                Clock.systemUTC(), Ticker.systemTicker());
     }
 }
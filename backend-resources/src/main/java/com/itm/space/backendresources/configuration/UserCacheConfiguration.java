@@ -0,0 +1,51 @@
+package com.itm.space.backendresources.configuration;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.cache.CaffeineUserCache;
+import com.itm.space.backendresources.cache.NoOpUserCache;
+import com.itm.space.backendresources.cache.UserCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class UserCacheConfiguration {
+    @Value("${user-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${user-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+    @Value("${user-cache.refresh-after-write}")
+    private Duration refreshAfterWrite;
+    @Value("${user-cache.refresh-threads}")
+    private int refreshThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "user-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ExecutorService userCacheRefreshExecutor() {
+        return new ThreadPoolExecutor(refreshThreads, refreshThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(1024),
+                new CustomizableThreadFactory("user-cache-refresh-"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "user-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CaffeineUserCache caffeineUserCache() {
+        return new CaffeineUserCache(maximumSize, expireAfterWrite, refreshAfterWrite,
+                userCacheRefreshExecutor(), Ticker.systemTicker());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "user-cache", name = "enabled", havingValue = "false")
+    public UserCache noOpUserCache() {
+        return new NoOpUserCache();
+    }
+}
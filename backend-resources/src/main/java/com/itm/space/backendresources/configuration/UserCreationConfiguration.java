@@ -0,0 +1,48 @@
+package com.itm.space.backendresources.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.outbox.UserCreationOutbox;
+import com.itm.space.backendresources.outbox.UserCreationWorker;
+import com.itm.space.backendresources.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Accepts {@code POST /api/users} into a local outbox and creates the users in the background.
+ * A relative {@code directory} is resolved against {@code base-directory}, not the working directory.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user-creation.async", name = "enabled", havingValue = "true")
+public class UserCreationConfiguration {
+    @Value("${user-creation.async.base-directory}")
+    private Path baseDirectory;
+    @Value("${user-creation.async.directory}")
+    private Path directory;
+    @Value("${user-creation.async.retention}")
+    private Duration retention;
+    @Value("${user-creation.async.worker-threads}")
+    private int workerThreads;
+    @Value("${user-creation.async.batch-size}")
+    private int batchSize;
+    @Value("${user-creation.async.max-attempts}")
+    private int maxAttempts;
+    @Value("${user-creation.async.initial-backoff}")
+    private Duration initialBackoff;
+
+    @Bean(initMethod = "open", destroyMethod = "close")
+    public UserCreationOutbox userCreationOutbox(ObjectMapper objectMapper) {
+        return new UserCreationOutbox(baseDirectory.resolve(directory), objectMapper, retention, Clock.systemUTC());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public UserCreationWorker userCreationWorker(UserCreationOutbox userCreationOutbox, UserService userService) {
+        return new UserCreationWorker(userCreationOutbox, userService, workerThreads, batchSize, maxAttempts,
+                initialBackoff, Clock.systemUTC());
+    }
+}
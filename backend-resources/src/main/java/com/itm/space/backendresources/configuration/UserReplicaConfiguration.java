@@ -0,0 +1,38 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.replica.KeycloakUserSync;
+import com.itm.space.backendresources.replica.UserReplica;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves user lookups from a local replica of the realm instead of the per-user cache. The
+ * replica takes precedence over {@link UserCacheConfiguration}'s cache, which can be switched
+ * off with {@code user-cache.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user-replica", name = "enabled", havingValue = "true")
+public class UserReplicaConfiguration {
+    @Value("${user-replica.max-staleness}")
+    private Duration maxStaleness;
+    @Value("${user-replica.sync-interval}")
+    private Duration syncInterval;
+    @Value("${user-replica.full-sync-interval}")
+    private Duration fullSyncInterval;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @Primary
+    public UserReplica userReplica(KeycloakUserSync keycloakUserSync) {
+        return new UserReplica(keycloakUserSync, maxStaleness, syncInterval, fullSyncInterval,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("user-replica-sync-")),
+                Clock.systemUTC());
+    }
+}
@@ -0,0 +1,18 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.api.request.UserDetail;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Locale;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, UserDetail.class,
+                source -> UserDetail.valueOf(source.trim().toUpperCase(Locale.ROOT)));
+    }
+}
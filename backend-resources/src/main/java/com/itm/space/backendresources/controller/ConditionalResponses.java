@@ -0,0 +1,88 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Conditional-GET handling for {@link UserResponse}. The entity tag is a 64-bit FNV-1a hash of
+ * the response fields, so a matching {@code If-None-Match} is answered with 304 without
+ * serializing the body. Keycloak keeps no modification time, so {@code Last-Modified} is the
+ * time the data was read from Keycloak.
+ */
+final class ConditionalResponses {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ConditionalResponses() {
+    }
+
+    static ResponseEntity<UserResponse> of(UserResponse user, HttpHeaders requestHeaders) {
+        String eTag = eTag(user);
+        Instant retrievedAt = user.getRetrievedAt();
+        boolean notModified = notModified(eTag, retrievedAt, requestHeaders);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(eTag);
+        if (retrievedAt != null) {
+            response.lastModified(retrievedAt);
+        }
+        return notModified ? response.build() : response.body(user);
+    }
+
+    static String eTag(UserResponse user) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, user.getFirstName());
+        hash = hash(hash, user.getLastName());
+        hash = hash(hash, user.getEmail());
+        hash = hash(hash, user.getRoles());
+        hash = hash(hash, user.getGroups());
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    private static boolean notModified(String eTag, Instant retrievedAt, HttpHeaders requestHeaders) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String candidate : ifNoneMatch) {
+                if ("*".equals(candidate) || eTag.equals(candidate.startsWith("W/") ? candidate.substring(2) : candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince >= 0 && retrievedAt != null
+                && retrievedAt.getEpochSecond() * 1000 <= ifModifiedSince;
+    }
+
+    private static long hash(long hash, List<String> values) {
+        if (values == null) {
+            return mix(hash, 0);
+        }
+        hash = mix(hash, 1);
+        for (String value : values) {
+            hash = hash(hash, value);
+        }
+        return mix(hash, 2);
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return mix(hash, 0);
+        }
+        hash = mix(hash, 1);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = mix(mix(hash, c >>> 8), c & 0xff);
+        }
+        return mix(hash, 2);
+    }
+
+    private static long mix(long hash, int octet) {
+        return (hash ^ octet) * FNV_PRIME;
+    }
+}
@@ -1,6 +1,16 @@
 package com.itm.space.backendresources.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.idempotency.IdempotencyStore;
+import com.itm.space.backendresources.idempotency.ReplayedException;
+import com.itm.space.backendresources.metrics.StatusMeters;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,9 +24,24 @@ import java.util.Map;
 @RestControllerAdvice
 public class RestExceptionHandler {
 
+    private final StatusMeters<Counter> backendExceptions;
+
+    public RestExceptionHandler(MeterRegistry registry) {
+        this.backendExceptions = new StatusMeters<>(status -> Counter.builder("backend.resources.exceptions")
+                .description("BackendResourcesExceptions by the HTTP status they were mapped to")
+                .tag("status", String.valueOf(status))
+                .register(registry));
+    }
+
     @ExceptionHandler(BackendResourcesException.class)
     public ResponseEntity<String> handleException(BackendResourcesException backendResourcesException) {
-        return new ResponseEntity<>(backendResourcesException.getMessage(), backendResourcesException.getHttpStatus());
+        HttpStatus status = backendResourcesException.getHttpStatus();
+        backendExceptions.get(status != null ? status.value() : 0).increment();
+        HttpHeaders headers = new HttpHeaders();
+        if (backendResourcesException instanceof ReplayedException) {
+            headers.set(IdempotencyStore.REPLAYED_HEADER, "true");
+        }
+        return new ResponseEntity<>(backendResourcesException.getMessage(), headers, status);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -28,4 +53,14 @@ public class RestExceptionHandler {
         return errorMap;
     }
 
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<String> handleRejectedCall(RuntimeException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler({JsonProcessingException.class, RuntimeJsonMappingException.class})
+    public ResponseEntity<String> handleUnreadableBody(Exception ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
 }
@@ -1,11 +1,26 @@
 package com.itm.space.backendresources.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
+import com.itm.space.backendresources.idempotency.IdempotencyStore;
+import com.itm.space.backendresources.outbox.UserCreationJob;
+import com.itm.space.backendresources.outbox.UserCreationOutbox;
 import com.itm.space.backendresources.service.UserService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,30 +28,171 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
 public class UserController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String STREAM_TIMEOUT = UserController.class.getName() + ".STREAM_TIMEOUT";
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Optional<UserCreationOutbox> userCreationOutbox;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${keycloak.listing.stream-timeout}")
+    private Duration streamTimeout;
 
+    /**
+     * Creates the user, or with {@code user-creation.async.enabled} records it in the outbox and
+     * answers 202 with the job to poll. A repeat of a request with the same
+     * {@code Idempotency-Key} from the same caller gets the first response instead of creating
+     * the user again.
+     */
     @PostMapping
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
-    public void create(@RequestBody @Valid UserRequest userRequest) {
+    public ResponseEntity<UserCreationJobResponse> create(@RequestBody @Valid UserRequest userRequest,
+                                                          @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                                          String idempotencyKey,
+                                                          Principal principal) {
+        if (idempotencyKey == null) {
+            return accept(userRequest);
+        }
+        IdempotencyStore.Outcome<ResponseEntity<UserCreationJobResponse>> outcome = idempotencyStore.execute(
+                principal.getName() + ':' + idempotencyKey, fingerprint(userRequest), () -> accept(userRequest));
+        if (!outcome.replayed()) {
+            return outcome.value();
+        }
+        return ResponseEntity.status(outcome.value().getStatusCode())
+                .headers(outcome.value().getHeaders())
+                .header(IdempotencyStore.REPLAYED_HEADER, "true")
+                .body(outcome.value().getBody());
+    }
+
+    private byte[] fingerprint(UserRequest userRequest) {
+        try {
+            return IdempotencyStore.fingerprint(objectMapper.writeValueAsBytes(userRequest));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private ResponseEntity<UserCreationJobResponse> accept(UserRequest userRequest) {
+        if (userCreationOutbox.isPresent()) {
+            UserCreationJob job = userCreationOutbox.get().enqueue(userRequest);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/users/jobs/" + job.id()))
+                    .body(job.toResponse());
+        }
         userService.createUser(userRequest);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<UserCreationJobResponse> getCreationJob(@PathVariable UUID id) {
+        return ResponseEntity.of(userCreationOutbox.flatMap(outbox -> outbox.get(id)).map(UserCreationJob::toResponse));
+    }
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public Map<Integer, UserCreationResult> createBatch(InputStream body) throws IOException {
+        try (MappingIterator<UserRequest> userRequests = objectMapper.readerFor(UserRequest.class).readValues(body)) {
+            return userService.createUsers(userRequests);
+        }
     }
 
     @GetMapping("/{id}")
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
-    public UserResponse getUserById(@PathVariable UUID id) {
-        return userService.getUserById(id);
+    public CompletableFuture<ResponseEntity<UserResponse>> getUserById(@PathVariable UUID id,
+                                                                       @RequestParam(required = false) Set<UserDetail> include,
+                                                                       @RequestHeader HttpHeaders headers) {
+        CompletableFuture<UserResponse> user = include == null
+                ? userService.getUserByIdAsync(id)
+                : userService.getUserByIdAsync(id, include);
+        return user.thenApply(response -> ConditionalResponses.of(response, headers));
+    }
+
+    @GetMapping(params = "ids")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public UsersResponse getUsersByIds(@RequestParam List<UUID> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public List<UserResponse> searchUsers(@RequestParam(required = false) String search,
+                                          @RequestParam(defaultValue = "0") int first,
+                                          @RequestParam(defaultValue = "${keycloak.listing.default-page-size}") int max) {
+        return userService.searchUsers(search, first, max);
+    }
+
+    /**
+     * All matching users as newline-delimited JSON, written and flushed one Keycloak page at a
+     * time so memory use does not grow with the size of the realm. The stream runs under
+     * {@code keycloak.listing.stream-timeout} instead of the much shorter default async timeout.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(required = false) String search,
+                                                             NativeWebRequest webRequest) {
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(STREAM_TIMEOUT,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        if (request instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(streamTimeout.toMillis());
+                        }
+                    }
+                });
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+                userService.streamUsers(search, page -> {
+                    try {
+                        writer.writeAll(page);
+                        writer.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/hello")
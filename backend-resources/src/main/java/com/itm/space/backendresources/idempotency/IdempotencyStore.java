@@ -0,0 +1,149 @@
+package com.itm.space.backendresources.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpStatus;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded store of the outcomes of requests sent with an {@code Idempotency-Key}, kept for
+ * {@code ttl} after the first attempt started. The first request with a key runs; a repeat while
+ * it is running waits up to {@code inFlightTimeout} for its outcome, a later repeat gets the
+ * stored outcome without running again.
+ * <p>
+ * Results and client errors (4xx) are stored. Any other failure is handed to the requests waiting
+ * for it and then forgotten, so a retry after a server error or a rejection runs again. Every
+ * answer taken from an earlier request, result or failure, is marked with {@value #REPLAYED_HEADER}.
+ */
+public class IdempotencyStore implements MeterBinder {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final Cache<String, Attempt> attempts;
+    private final Duration inFlightTimeout;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+
+    public IdempotencyStore(long maximumSize, Duration ttl, Duration inFlightTimeout, Ticker ticker) {
+        this.attempts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    /**
+     * Runs {@code action} unless a request with the same key has run or is running.
+     *
+     * @param key         the idempotency key, scoped to the caller
+     * @param fingerprint identifies the request body, see {@link #fingerprint}; reusing a key for a
+     *                    different body is rejected with 422
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Outcome<T> execute(String key, byte[] fingerprint, Supplier<T> action) {
+        Attempt attempt = new Attempt(fingerprint, new CompletableFuture<>());
+        Attempt existing = attempts.asMap().putIfAbsent(key, attempt);
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.fingerprint(), fingerprint)) {
+                mismatched.increment();
+                throw new BackendResourcesException("Idempotency-Key was already used for a different request",
+                        HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            replayed.increment();
+            return new Outcome<>((T) await(existing.result()), true);
+        }
+        executed.increment();
+        try {
+            T value = action.get();
+            attempt.result().complete(value);
+            return new Outcome<>(value, false);
+        } catch (Throwable ex) {
+            if (!isFinal(ex)) {
+                attempts.asMap().remove(key, attempt);
+            }
+            attempt.result().completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * SHA-256 of a canonical serialization of the request body.
+     */
+    public static byte[] fingerprint(byte[] canonicalBody) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonicalBody);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("idempotency.keys", attempts, Cache::estimatedSize)
+                .description("Idempotency keys with a stored or in-flight outcome")
+                .register(registry);
+        requests(registry, "executed", executed);
+        requests(registry, "replayed", replayed);
+        requests(registry, "mismatched", mismatched);
+    }
+
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof BackendResourcesException cause) {
+                throw new ReplayedException(cause);
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new BackendResourcesException("A request with this Idempotency-Key is still in progress",
+                    HttpStatus.CONFLICT);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BackendResourcesException("Interrupted while waiting for the original request",
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private static boolean isFinal(Throwable ex) {
+        return ex instanceof BackendResourcesException backendException
+                && backendException.getHttpStatus() != null
+                && backendException.getHttpStatus().is4xxClientError();
+    }
+
+    private static void requests(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder("idempotency.requests", count, LongAdder::sum)
+                .description("Requests sent with an Idempotency-Key")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * @param replayed the value is the stored outcome of an earlier request
+     */
+    public record Outcome<T>(T value, boolean replayed) {
+    }
+
+    private record Attempt(byte[] fingerprint, CompletableFuture<Object> result) {
+    }
+}
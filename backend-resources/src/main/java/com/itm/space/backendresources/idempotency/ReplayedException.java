@@ -0,0 +1,14 @@
+package com.itm.space.backendresources.idempotency;
+
+import com.itm.space.backendresources.exception.BackendResourcesException;
+
+/**
+ * The failure of an earlier request with the same {@code Idempotency-Key}, answered again with
+ * the {@value IdempotencyStore#REPLAYED_HEADER} header.
+ */
+public class ReplayedException extends BackendResourcesException {
+
+    public ReplayedException(BackendResourcesException original) {
+        super(original.getMessage(), original.getHttpStatus());
+    }
+}
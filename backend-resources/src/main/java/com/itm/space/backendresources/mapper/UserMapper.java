@@ -1,5 +1,6 @@
 package com.itm.space.backendresources.mapper;
 
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.response.UserResponse;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
@@ -9,26 +10,55 @@ import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.Named;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
-@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, imports = Collections.class)
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, imports = {Collections.class, Instant.class})
 public interface UserMapper {
 
     @Mapping(target = "roles", source = "roleList", qualifiedByName = "mapRoleRepresentationToString")
     @Mapping(target = "groups", source = "groupList", qualifiedByName = "mapGroupRepresentationToString")
+    @Mapping(target = "retrievedAt", expression = "java(Instant.now())")
     UserResponse userRepresentationToUserResponse(UserRepresentation userRepresentation,
                                                   List<RoleRepresentation> roleList,
                                                   List<GroupRepresentation> groupList);
 
+    /**
+     * Same as {@link #userRepresentationToUserResponse(UserRepresentation, List, List)} for role and
+     * group names that are already resolved, e.g. from the membership index.
+     */
+    @Mapping(target = "roles", source = "roleNames")
+    @Mapping(target = "groups", source = "groupNames")
+    @Mapping(target = "retrievedAt", expression = "java(Instant.now())")
+    UserResponse userRepresentationToUserResponseWithNames(UserRepresentation userRepresentation,
+                                                           List<String> roleNames,
+                                                           List<String> groupNames);
+
     @Named("mapRoleRepresentationToString")
     default List<String> mapRoleRepresentationToString(List<RoleRepresentation> roleList) {
+        if (roleList == null) {
+            return null;
+        }
         return roleList.stream().map(RoleRepresentation::getName).toList();
     }
 
     @Named("mapGroupRepresentationToString")
     default List<String> mapGroupRepresentationToString(List<GroupRepresentation> groupList) {
+        if (groupList == null) {
+            return null;
+        }
         return groupList.stream().map(GroupRepresentation::getName).toList();
     }
 
+    default UserResponse project(UserResponse userResponse, Set<UserDetail> include) {
+        UserResponse projection = new UserResponse(userResponse.getFirstName(), userResponse.getLastName(),
+                userResponse.getEmail(),
+                include.contains(UserDetail.ROLES) ? userResponse.getRoles() : null,
+                include.contains(UserDetail.GROUPS) ? userResponse.getGroups() : null);
+        projection.setRetrievedAt(userResponse.getRetrievedAt());
+        return projection;
+    }
+
 }
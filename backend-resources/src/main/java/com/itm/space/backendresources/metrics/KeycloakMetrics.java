@@ -0,0 +1,64 @@
+package com.itm.space.backendresources.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times calls to the Keycloak admin API as {@code keycloak.client.requests}, tagged with the
+ * operation, the upstream HTTP status ({@code 0} when no response was received) and its outcome.
+ */
+@Component
+public class KeycloakMetrics {
+
+    public static final String REQUESTS = "keycloak.client.requests";
+
+    public enum Operation {
+        CREATE_USER(201), GET_USER(200), GET_ROLES(200), GET_GROUPS(200), LIST_USERS(200);
+
+        private final String tag = name().toLowerCase();
+        private final int successStatus;
+
+        Operation(int successStatus) {
+            this.successStatus = successStatus;
+        }
+    }
+
+    private final Map<Operation, StatusMeters<Timer>> timers = new EnumMap<>(Operation.class);
+
+    public KeycloakMetrics(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, new StatusMeters<>(status -> Timer.builder(REQUESTS)
+                    .tag("operation", operation.tag)
+                    .tag("status", String.valueOf(status))
+                    .tag("outcome", status == 0 ? Outcome.UNKNOWN.name() : Outcome.forStatus(status).name())
+                    .register(registry)));
+        }
+    }
+
+    public <T> T record(Operation operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            T result = call.get();
+            status = operation.successStatus;
+            return result;
+        } catch (WebApplicationException ex) {
+            status = ex.getResponse().getStatus();
+            throw ex;
+        } finally {
+            record(operation, status, System.nanoTime() - start);
+        }
+    }
+
+    public void record(Operation operation, int status, long durationNanos) {
+        timers.get(operation).get(status).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,35 @@
+package com.itm.space.backendresources.metrics;
+
+import io.micrometer.core.instrument.Meter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Meters of one kind indexed by HTTP status. Each meter is registered on first use and then
+ * looked up by array index, so recording allocates nothing once a status has been seen.
+ * Status {@code 0} stands for "no response".
+ */
+public class StatusMeters<M extends Meter> {
+
+    private static final int MAX_STATUS = 599;
+
+    private final AtomicReferenceArray<M> meters = new AtomicReferenceArray<>(MAX_STATUS + 1);
+    private final IntFunction<M> factory;
+
+    public StatusMeters(IntFunction<M> factory) {
+        this.factory = factory;
+    }
+
+    public M get(int status) {
+        int index = status < 0 || status > MAX_STATUS ? 0 : status;
+        M meter = meters.get(index);
+        if (meter == null) {
+            meter = factory.apply(index);
+            if (!meters.compareAndSet(index, null, meter)) {
+                meter = meters.get(index);
+            }
+        }
+        return meter;
+    }
+}
@@ -0,0 +1,49 @@
+package com.itm.space.backendresources.outbox;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One asynchronous user creation as recorded in the {@link UserCreationOutbox} journal. The
+ * request, and with it the password, is dropped once the job has finished.
+ *
+ * @param notBefore earliest time of the next attempt while {@code PENDING}
+ */
+public record UserCreationJob(UUID id, Status status, UserRequest request, String userId, int attempts,
+                              String error, Instant createdAt, Instant updatedAt, Instant notBefore) {
+
+    public enum Status {
+        PENDING, RUNNING, SUCCEEDED, FAILED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    public UserCreationJobResponse toResponse() {
+        return new UserCreationJobResponse(id, status.name(), userId, attempts, error, createdAt, updatedAt);
+    }
+
+    static UserCreationJob pending(UserRequest request, Instant now) {
+        return new UserCreationJob(UUID.randomUUID(), Status.PENDING, request, null, 0, null, now, now, now);
+    }
+
+    UserCreationJob running(Instant now) {
+        return new UserCreationJob(id, Status.RUNNING, request, null, attempts + 1, error, createdAt, now, now);
+    }
+
+    UserCreationJob retry(String error, Instant notBefore, Instant now) {
+        return new UserCreationJob(id, Status.PENDING, request, null, attempts, error, createdAt, now, notBefore);
+    }
+
+    UserCreationJob succeeded(String userId, Instant now) {
+        return new UserCreationJob(id, Status.SUCCEEDED, null, userId, attempts, null, createdAt, now, null);
+    }
+
+    UserCreationJob failed(String error, Instant now) {
+        return new UserCreationJob(id, Status.FAILED, null, null, attempts, error, createdAt, now, null);
+    }
+}
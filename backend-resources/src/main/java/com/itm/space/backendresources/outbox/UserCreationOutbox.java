@@ -0,0 +1,248 @@
+package com.itm.space.backendresources.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itm.space.backendresources.api.request.UserRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of asynchronous user creations, kept in a local append-only journal of
+ * newline-delimited JSON job snapshots in which the last snapshot of a job wins. Every change is
+ * forced to disk before it becomes visible, so an accepted request survives a crash; jobs that
+ * were pending or running when the process stopped are queued again when it is {@link #open()
+ * opened}. The journal is rewritten without superseded snapshots and expired finished jobs when
+ * opened and whenever it has grown to several times the live job count.
+ * <p>
+ * The journal holds passwords of pending jobs and is created readable by its owner only.
+ */
+@Slf4j
+public class UserCreationOutbox implements MeterBinder, AutoCloseable {
+
+    static final String JOURNAL = "user-creation-outbox.ndjson";
+    private static final int MIN_COMPACTION_RECORDS = 1_000;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final Path directory;
+    private final Path journal;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final Duration retention;
+    private final Clock clock;
+    private final Map<UUID, UserCreationJob> jobs = new ConcurrentHashMap<>();
+    private final DelayQueue<Due> due = new DelayQueue<>();
+    private FileChannel channel;
+    private long records;
+
+    public UserCreationOutbox(Path directory, ObjectMapper objectMapper, Duration retention, Clock clock) {
+        this.directory = directory;
+        this.journal = directory.resolve(JOURNAL);
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Replays the journal, queues the unfinished jobs again and compacts the journal.
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        if (Files.exists(journal)) {
+            replay();
+        }
+        compact();
+        jobs.values().stream()
+                .filter(job -> !job.status().isFinished())
+                .forEach(job -> due.add(new Due(job.id(), job.notBefore(), clock)));
+        log.info("Opened user creation outbox {} with {} unfinished jobs", journal, due.size());
+    }
+
+    /**
+     * Records a new pending job for the request; returns once the job is on disk.
+     */
+    public UserCreationJob enqueue(UserRequest request) {
+        UserCreationJob job = UserCreationJob.pending(request, clock.instant());
+        update(List.of(job));
+        due.add(new Due(job.id(), job.notBefore(), clock));
+        return job;
+    }
+
+    public Optional<UserCreationJob> get(UUID id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Waits up to {@code timeout} for a job that is due and takes it together with up to
+     * {@code maxJobs - 1} further due jobs.
+     *
+     * @return the taken jobs, empty if none became due in time
+     */
+    public List<UserCreationJob> take(int maxJobs, Duration timeout) throws InterruptedException {
+        List<UserCreationJob> taken = new ArrayList<>(maxJobs);
+        Due next = due.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        while (next != null) {
+            UserCreationJob job = jobs.get(next.id());
+            if (job != null && !job.status().isFinished()) {
+                taken.add(job);
+            }
+            next = taken.size() < maxJobs ? due.poll() : null;
+        }
+        return taken;
+    }
+
+    /**
+     * Records new snapshots of jobs with a single forced write and queues those that are pending
+     * again.
+     */
+    public void update(Collection<UserCreationJob> updated) {
+        append(updated);
+        updated.stream()
+                .filter(job -> job.status() == UserCreationJob.Status.PENDING && job.attempts() > 0)
+                .forEach(job -> due.add(new Due(job.id(), job.notBefore(), clock)));
+    }
+
+    public int pending() {
+        return due.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.creation.outbox.pending", this, UserCreationOutbox::pending)
+                .description("Accepted user creations waiting for a worker")
+                .register(registry);
+        Gauge.builder("user.creation.outbox.jobs", jobs, Map::size)
+                .description("Jobs held by the outbox, finished jobs included until they expire")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private synchronized void append(Collection<UserCreationJob> updated) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * updated.size());
+        try {
+            for (UserCreationJob job : updated) {
+                bytes.write(writer.writeValueAsBytes(job));
+                bytes.write(NEWLINE);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write the user creation outbox", ex);
+        }
+        updated.forEach(job -> jobs.put(job.id(), job));
+        records += updated.size();
+        if (records >= MIN_COMPACTION_RECORDS && records > 4L * jobs.size()) {
+            try {
+                compact();
+            } catch (IOException ex) {
+                log.warn("Failed to compact the user creation outbox: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void replay() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journal)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    UserCreationJob job = objectMapper.readValue(line, UserCreationJob.class);
+                    jobs.put(job.id(), job);
+                } catch (JsonProcessingException ex) {
+                    // A write cut short by a crash is never acknowledged, so its job was not accepted
+                    log.warn("Skipping unreadable user creation outbox record: {}", ex.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal with the latest snapshot of every job still worth keeping and switches
+     * appends to the new file.
+     */
+    private void compact() throws IOException {
+        Instant expiry = clock.instant().minus(retention);
+        jobs.values().removeIf(job -> job.status().isFinished() && job.updatedAt().isBefore(expiry));
+        Path compacted = directory.resolve(JOURNAL + ".tmp");
+        Files.deleteIfExists(compacted);
+        try (FileChannel out = FileChannel.open(compacted,
+                Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), ownerOnly())) {
+            for (UserCreationJob job : jobs.values()) {
+                ByteBuffer[] record = {ByteBuffer.wrap(writer.writeValueAsBytes(job)), ByteBuffer.wrap(NEWLINE)};
+                while (record[1].hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(false);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        records = jobs.size();
+    }
+
+    private static FileAttribute<?>[] ownerOnly() {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+    }
+
+    private record Due(UUID id, Instant notBefore, Clock clock) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(clock.instant(), notBefore));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return notBefore.compareTo(((Due) other).notBefore);
+        }
+    }
+}
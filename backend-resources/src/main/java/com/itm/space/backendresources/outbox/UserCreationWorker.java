@@ -0,0 +1,177 @@
+package com.itm.space.backendresources.outbox;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.service.UserService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the {@link UserCreationOutbox} into Keycloak with {@code threads} workers, each creating
+ * up to {@code batchSize} due users per {@link UserService#createUsers} call.
+ * <p>
+ * The attempt is recorded before Keycloak is called. Server errors, rate limiting and rejections
+ * are retried with exponential backoff up to {@code maxAttempts}; client errors fail the job. A
+ * conflict on a later attempt means an earlier attempt created the user before its outcome could
+ * be recorded, so the job succeeds with the existing user's id.
+ */
+@Slf4j
+public class UserCreationWorker implements MeterBinder, AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final UserCreationOutbox outbox;
+    private final UserService userService;
+    private final int threads;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Clock clock;
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private ExecutorService workers;
+
+    public UserCreationWorker(UserCreationOutbox outbox, UserService userService, int threads, int batchSize,
+                              int maxAttempts, Duration initialBackoff, Clock clock) {
+        this.outbox = outbox;
+        this.userService = userService;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.clock = clock;
+    }
+
+    public void start() {
+        workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-creation-"));
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        jobs(registry, "succeeded", succeeded);
+        jobs(registry, "retried", retried);
+        jobs(registry, "failed", failed);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (workers != null) {
+            workers.shutdownNow();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Runs one batch of jobs taken from the outbox and records their outcomes.
+     */
+    void process(List<UserCreationJob> batch) {
+        Instant startedAt = clock.instant();
+        List<UserCreationJob> attempts = batch.stream().map(job -> job.running(startedAt)).toList();
+        outbox.update(attempts);
+        Map<Integer, UserCreationResult> results;
+        try {
+            results = userService.createUsers(attempts.stream().map(UserCreationJob::request).iterator());
+        } catch (RuntimeException ex) {
+            log.error("User creation batch failed: ", ex);
+            results = Map.of();
+        }
+        List<UserCreationJob> outcomes = new ArrayList<>(attempts.size());
+        for (int i = 0; i < attempts.size(); i++) {
+            outcomes.add(outcome(attempts.get(i), results.get(i)));
+        }
+        outbox.update(outcomes);
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<UserCreationJob> batch = outbox.take(batchSize, POLL_TIMEOUT);
+                if (!batch.isEmpty()) {
+                    process(batch);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                // The outbox could not be written; the batch is picked up again on the next start
+                log.error("Failed to record user creation jobs: ", ex);
+            }
+        }
+    }
+
+    private UserCreationJob outcome(UserCreationJob job, UserCreationResult result) {
+        Instant now = clock.instant();
+        int status = result != null ? result.getStatus() : 0;
+        if (status == 201) {
+            succeeded.increment();
+            return job.succeeded(result.getId(), now);
+        }
+        if (status == 409 && job.attempts() > 1) {
+            String id = existingUserId(job.request());
+            if (id != null) {
+                succeeded.increment();
+                return job.succeeded(id, now);
+            }
+        }
+        String error = error(status, result);
+        if (isRetryable(status) && job.attempts() < maxAttempts) {
+            retried.increment();
+            return job.retry(error, now.plus(backoff(job.attempts())), now);
+        }
+        failed.increment();
+        log.warn("Giving up on creating user {} after {} attempts: {}",
+                job.request().getUsername(), job.attempts(), error);
+        return job.failed(error, now);
+    }
+
+    private String existingUserId(UserRequest request) {
+        try {
+            return userService.findUserId(request.getUsername());
+        } catch (RuntimeException ex) {
+            log.warn("Lookup of existing user {} failed: {}", request.getUsername(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        return initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 16));
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 0 || status == 429 || status >= 500;
+    }
+
+    private static String error(int status, UserCreationResult result) {
+        if (result == null) {
+            return "Batch failed";
+        }
+        if (result.getErrors() != null) {
+            return result.getErrors().toString();
+        }
+        return result.getError() != null ? result.getError() : "Status " + status;
+    }
+
+    private static void jobs(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder("user.creation.jobs", count, LongAdder::sum)
+                .description("Outcomes of asynchronous user creation attempts")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
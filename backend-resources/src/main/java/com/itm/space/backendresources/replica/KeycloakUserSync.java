@@ -0,0 +1,225 @@
+package com.itm.space.backendresources.replica;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import javax.ws.rs.NotFoundException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Reads users of a realm from the Keycloak admin API for {@link UserReplica}.
+ * <p>
+ * A full snapshot costs one paged listing of users plus one paged member listing per realm role
+ * and per group, instead of two extra calls per user. Incremental changes are read from the
+ * realm's admin events, which must be enabled ("Save admin events") for them to be seen.
+ */
+@RequiredArgsConstructor
+public class KeycloakUserSync {
+
+    private final Keycloak keycloakClient;
+    private final String realm;
+    private final UserMapper userMapper;
+    private final int pageSize;
+
+    public Map<UUID, UserResponse> fetchAll() {
+        Memberships memberships = fetchMemberships();
+        Map<UUID, List<String>> rolesByUser = byUser(memberships.roleMembers());
+        Map<UUID, List<String>> groupsByUser = byUser(memberships.groupMembers());
+        Map<UUID, UserResponse> users = new HashMap<>();
+        forEachPage(first -> keycloakClient.realm(realm).users().list(first, pageSize), user -> {
+            UUID id = parseId(user.getId());
+            if (id != null) {
+                users.put(id, userMapper.userRepresentationToUserResponseWithNames(user,
+                        rolesByUser.getOrDefault(id, List.of()), groupsByUser.getOrDefault(id, List.of())));
+            }
+        });
+        return users;
+    }
+
+    /**
+     * Direct realm role and group members by role and group name, from one paged member listing
+     * per role and per group (nested groups included).
+     */
+    public Memberships fetchMemberships() {
+        RealmResource realmResource = keycloakClient.realm(realm);
+        Map<String, Set<UUID>> roleMembers = new LinkedHashMap<>();
+        for (RoleRepresentation role : realmResource.roles().list()) {
+            Set<UUID> members = roleMembers.computeIfAbsent(role.getName(), name -> new HashSet<>());
+            forEachPage(first -> realmResource.roles().get(role.getName()).getRoleUserMembers(first, pageSize),
+                    user -> addId(members, user));
+        }
+        Map<String, Set<UUID>> groupMembers = new LinkedHashMap<>();
+        for (GroupRepresentation group : flatten(realmResource.groups().groups(), new ArrayList<>())) {
+            Set<UUID> members = groupMembers.computeIfAbsent(group.getName(), name -> new HashSet<>());
+            forEachPage(first -> realmResource.groups().group(group.getId()).members(first, pageSize, true),
+                    user -> addId(members, user));
+        }
+        return new Memberships(roleMembers, groupMembers);
+    }
+
+    /**
+     * @return the user's direct realm role and group names, or {@code null} if it no longer exists
+     */
+    public UserMemberships fetchMemberships(UUID id) {
+        UserResource userResource = keycloakClient.realm(realm).users().get(id.toString());
+        try {
+            List<RoleRepresentation> roles = userResource.roles().getAll().getRealmMappings();
+            return new UserMemberships(
+                    roles != null ? roles.stream().map(RoleRepresentation::getName).toList() : List.of(),
+                    userResource.groups().stream().map(GroupRepresentation::getName).toList());
+        } catch (NotFoundException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the user as a lookup through {@code UserService} would return it, or {@code null}
+     * if it no longer exists
+     */
+    public UserResponse fetchUser(UUID id) {
+        UserResource userResource = keycloakClient.realm(realm).users().get(id.toString());
+        try {
+            return userMapper.userRepresentationToUserResponse(userResource.toRepresentation(),
+                    userResource.roles().getAll().getRealmMappings(), userResource.groups());
+        } catch (NotFoundException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the realm saves admin events; without them {@link #changesSince} never sees
+     * a change. The resource path and operation used here are saved without "Include representation".
+     */
+    public boolean adminEventsEnabled() {
+        return Boolean.TRUE.equals(keycloakClient.realm(realm).toRepresentation().isAdminEventsEnabled());
+    }
+
+    /**
+     * Collects the users touched by admin events at or after {@code sinceMillis}. Events that
+     * rename or remove realm roles or groups can affect any user and request a full sync instead.
+     */
+    public Changes changesSince(long sinceMillis) {
+        RealmResource realmResource = keycloakClient.realm(realm);
+        String dateFrom = LocalDate.ofInstant(Instant.ofEpochMilli(sinceMillis), ZoneOffset.UTC)
+                .minusDays(1)
+                .toString();
+        Set<UUID> users = new HashSet<>();
+        long latestEventTime = sinceMillis;
+        for (int first = 0; ; first += pageSize) {
+            List<AdminEventRepresentation> events = realmResource.getAdminEvents(null, null, null, null, null, null,
+                    dateFrom, null, first, pageSize);
+            for (AdminEventRepresentation event : events) {
+                if (event.getTime() < sinceMillis) {
+                    return new Changes(users, false, latestEventTime);
+                }
+                latestEventTime = Math.max(latestEventTime, event.getTime());
+                if (affectsAllUsers(event)) {
+                    return new Changes(Set.of(), true, latestEventTime);
+                }
+                UUID userId = userId(event.getResourcePath());
+                if (userId != null) {
+                    users.add(userId);
+                }
+            }
+            if (events.size() < pageSize) {
+                return new Changes(users, false, latestEventTime);
+            }
+        }
+    }
+
+    private static boolean affectsAllUsers(AdminEventRepresentation event) {
+        String resourceType = event.getResourceType();
+        return ("REALM_ROLE".equals(resourceType) || "GROUP".equals(resourceType))
+                && !"CREATE".equals(event.getOperationType());
+    }
+
+    private static Map<UUID, List<String>> byUser(Map<String, Set<UUID>> members) {
+        Map<UUID, List<String>> byUser = new HashMap<>();
+        members.forEach((name, ids) ->
+                ids.forEach(id -> byUser.computeIfAbsent(id, key -> new ArrayList<>()).add(name)));
+        return byUser;
+    }
+
+    private static void addId(Set<UUID> ids, UserRepresentation user) {
+        UUID id = parseId(user.getId());
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static UUID userId(String resourcePath) {
+        if (resourcePath == null || !resourcePath.startsWith("users/")) {
+            return null;
+        }
+        int end = resourcePath.indexOf('/', "users/".length());
+        return parseId(resourcePath.substring("users/".length(), end < 0 ? resourcePath.length() : end));
+    }
+
+    private static UUID parseId(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private void forEachPage(IntFunction<? extends Collection<UserRepresentation>> page,
+                             Consumer<UserRepresentation> action) {
+        for (int first = 0; ; first += pageSize) {
+            Collection<UserRepresentation> users = page.apply(first);
+            users.forEach(action);
+            if (users.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+    private static List<GroupRepresentation> flatten(List<GroupRepresentation> groups,
+                                                     List<GroupRepresentation> into) {
+        for (GroupRepresentation group : groups) {
+            into.add(group);
+            if (group.getSubGroups() != null) {
+                flatten(group.getSubGroups(), into);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * @param users            users to re-read
+     * @param fullSyncRequired the events cannot be applied user by user
+     * @param latestEventTime  time of the newest event seen, the next {@code sinceMillis}
+     */
+    public record Changes(Set<UUID> users, boolean fullSyncRequired, long latestEventTime) {
+    }
+
+    public record Memberships(Map<String, Set<UUID>> roleMembers, Map<String, Set<UUID>> groupMembers) {
+    }
+
+    public record UserMemberships(List<String> roles, List<String> groups) {
+    }
+}
@@ -0,0 +1,336 @@
+package com.itm.space.backendresources.replica;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Shared index of realm role and group members, so that mapping many users needs no per-user
+ * role or group calls. Built from role-member and group-member listings every
+ * {@code fullRefreshInterval} and kept current from admin events every {@code refreshInterval}.
+ * <p>
+ * Role and group names are interned, and so are the per-user name lists: every user with the
+ * same roles shares one immutable list. The index only answers while its last successful refresh
+ * is at most {@code maxStaleness} old; callers fall back to per-user calls otherwise. While the
+ * realm saves no admin events, incremental refreshes are skipped and the index is only ready for
+ * {@code maxStaleness} after each full refresh.
+ */
+@Slf4j
+public class MembershipIndex implements MeterBinder, AutoCloseable {
+
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(30);
+
+    private final KeycloakUserSync keycloakUserSync;
+    private final Duration maxStaleness;
+    private final Duration refreshInterval;
+    private final Duration fullRefreshInterval;
+    private final ScheduledExecutorService refreshExecutor;
+    private final Clock clock;
+    private final LongAdder fullRefreshes = new LongAdder();
+    private final LongAdder fullRefreshFailures = new LongAdder();
+    private final LongAdder incrementalRefreshes = new LongAdder();
+    private final LongAdder incrementalRefreshFailures = new LongAdder();
+    private volatile Snapshot snapshot = new Snapshot();
+    private volatile Instant refreshedAt;
+    private boolean fullRefreshRequired = true;
+    private boolean adminEventsEnabled;
+    private long eventWatermark;
+
+    public MembershipIndex(KeycloakUserSync keycloakUserSync, Duration maxStaleness, Duration refreshInterval,
+                           Duration fullRefreshInterval, ScheduledExecutorService refreshExecutor, Clock clock) {
+        this.keycloakUserSync = keycloakUserSync;
+        this.maxStaleness = maxStaleness;
+        this.refreshInterval = refreshInterval;
+        this.fullRefreshInterval = fullRefreshInterval;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * An index that is never built and never {@link #isReady() ready}.
+     */
+    public static MembershipIndex disabled() {
+        return new MembershipIndex(null, Duration.ZERO, Duration.ZERO, Duration.ZERO, null, Clock.systemUTC());
+    }
+
+    public void start() {
+        refreshExecutor.execute(this::refresh);
+        refreshExecutor.scheduleWithFixedDelay(this::refresh,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        refreshExecutor.scheduleWithFixedDelay(this::requestFullRefresh,
+                fullRefreshInterval.toMillis(), fullRefreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isReady() {
+        Instant lastRefresh = refreshedAt;
+        return lastRefresh != null && !lastRefresh.plus(maxStaleness).isBefore(clock.instant());
+    }
+
+    /**
+     * @return the user's direct realm role names; empty if the user has none or is unknown
+     */
+    public List<String> roles(UUID userId) {
+        return snapshot.roles(userId);
+    }
+
+    /**
+     * @return the names of the groups the user is a direct member of
+     */
+    public List<String> groups(UUID userId) {
+        return snapshot.groups(userId);
+    }
+
+    public Set<UUID> roleMembers(String role) {
+        return snapshot.members(snapshot.roleMembers, role);
+    }
+
+    public Set<UUID> groupMembers(String group) {
+        return snapshot.members(snapshot.groupMembers, group);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.memberships.users", this, index -> index.snapshot.byUser.size())
+                .description("Users with at least one realm role or group in the membership index")
+                .register(registry);
+        Gauge.builder("user.memberships.distinct", this, index -> index.snapshot.lists.size())
+                .description("Distinct role and group name lists shared by the indexed users")
+                .register(registry);
+        Gauge.builder("user.memberships.staleness", this, MembershipIndex::stalenessSeconds)
+                .description("Seconds since the last successful refresh")
+                .baseUnit("seconds")
+                .register(registry);
+        refreshes(registry, "full", "success", fullRefreshes);
+        refreshes(registry, "full", "failure", fullRefreshFailures);
+        refreshes(registry, "incremental", "success", incrementalRefreshes);
+        refreshes(registry, "incremental", "failure", incrementalRefreshFailures);
+    }
+
+    @Override
+    public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one refresh step; called only from the refresh thread.
+     */
+    void refresh() {
+        if (fullRefreshRequired) {
+            fullRefresh();
+        } else if (adminEventsEnabled) {
+            incrementalRefresh();
+        }
+    }
+
+    private void requestFullRefresh() {
+        fullRefreshRequired = true;
+        refresh();
+    }
+
+    private void fullRefresh() {
+        Instant startedAt = clock.instant();
+        try {
+            adminEventsEnabled = keycloakUserSync.adminEventsEnabled();
+            if (!adminEventsEnabled) {
+                log.warn("Admin events are not saved for the realm, the membership index only refreshes every {}",
+                        fullRefreshInterval);
+            }
+            KeycloakUserSync.Memberships memberships = keycloakUserSync.fetchMemberships();
+            Snapshot rebuilt = new Snapshot();
+            rebuilt.loadRoles(memberships.roleMembers());
+            rebuilt.loadGroups(memberships.groupMembers());
+            snapshot = rebuilt;
+            eventWatermark = startedAt.minus(CLOCK_SKEW).toEpochMilli();
+            refreshedAt = startedAt;
+            fullRefreshRequired = false;
+            fullRefreshes.increment();
+            log.info("Indexed memberships of {} users in {} roles and {} groups",
+                    rebuilt.byUser.size(), rebuilt.roleMembers.size(), rebuilt.groupMembers.size());
+        } catch (RuntimeException ex) {
+            fullRefreshFailures.increment();
+            log.warn("Membership index rebuild failed, retrying in {}: {}", refreshInterval, ex.getMessage());
+        }
+    }
+
+    private void incrementalRefresh() {
+        Instant startedAt = clock.instant();
+        try {
+            KeycloakUserSync.Changes changes = keycloakUserSync.changesSince(eventWatermark);
+            if (changes.fullSyncRequired()) {
+                fullRefreshRequired = true;
+                fullRefresh();
+                return;
+            }
+            Snapshot current = snapshot;
+            for (UUID id : changes.users()) {
+                current.update(id, keycloakUserSync.fetchMemberships(id));
+            }
+            eventWatermark = changes.latestEventTime();
+            refreshedAt = startedAt;
+            incrementalRefreshes.increment();
+        } catch (RuntimeException ex) {
+            incrementalRefreshFailures.increment();
+            log.warn("Incremental membership refresh failed: {}", ex.getMessage());
+        }
+    }
+
+    private double stalenessSeconds() {
+        Instant lastRefresh = refreshedAt;
+        return lastRefresh != null ? Duration.between(lastRefresh, clock.instant()).toMillis() / 1000.0 : Double.NaN;
+    }
+
+    private static void refreshes(MeterRegistry registry, String type, String outcome, LongAdder count) {
+        FunctionCounter.builder("user.memberships.refreshes", count, LongAdder::sum)
+                .description("Refreshes of the membership index from Keycloak")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private record Memberships(List<String> roles, List<String> groups) {
+
+        private static final Memberships NONE = new Memberships(List.of(), List.of());
+    }
+
+    /**
+     * Name-to-members and member-to-names views of the same memberships. A full refresh builds a
+     * new snapshot; incremental refreshes update the current one in place from the refresh thread.
+     * Interned non-empty name lists are counted per user holding them and dropped with the last one.
+     */
+    private static final class Snapshot {
+        private final Map<String, Set<UUID>> roleMembers = new ConcurrentHashMap<>();
+        private final Map<String, Set<UUID>> groupMembers = new ConcurrentHashMap<>();
+        private final Map<UUID, Memberships> byUser = new ConcurrentHashMap<>();
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        private final Map<List<String>, InternedList> lists = new ConcurrentHashMap<>();
+
+        List<String> roles(UUID userId) {
+            return byUser.getOrDefault(userId, Memberships.NONE).roles();
+        }
+
+        List<String> groups(UUID userId) {
+            return byUser.getOrDefault(userId, Memberships.NONE).groups();
+        }
+
+        Set<UUID> members(Map<String, Set<UUID>> index, String name) {
+            Set<UUID> members = index.get(name);
+            return members != null ? Collections.unmodifiableSet(members) : Set.of();
+        }
+
+        void loadRoles(Map<String, Set<UUID>> members) {
+            index(members, roleMembers).forEach((id, roles) ->
+                    byUser.merge(id, new Memberships(intern(roles), List.of()),
+                            (current, loaded) -> new Memberships(loaded.roles(), current.groups())));
+        }
+
+        void loadGroups(Map<String, Set<UUID>> members) {
+            index(members, groupMembers).forEach((id, groups) ->
+                    byUser.merge(id, new Memberships(List.of(), intern(groups)),
+                            (current, loaded) -> new Memberships(current.roles(), loaded.groups())));
+        }
+
+        /**
+         * Replaces one user's memberships; {@code null} removes the user.
+         */
+        void update(UUID id, KeycloakUserSync.UserMemberships memberships) {
+            Memberships previous = byUser.getOrDefault(id, Memberships.NONE);
+            Memberships current = memberships != null
+                    ? new Memberships(intern(memberships.roles()), intern(memberships.groups()))
+                    : Memberships.NONE;
+            current.roles().forEach(role -> addMember(roleMembers, role, id));
+            current.groups().forEach(group -> addMember(groupMembers, group, id));
+            if (memberships != null) {
+                byUser.put(id, current);
+            } else {
+                byUser.remove(id);
+            }
+            release(previous.roles());
+            release(previous.groups());
+            previous.roles().stream()
+                    .filter(role -> !current.roles().contains(role))
+                    .forEach(role -> removeMember(roleMembers, role, id));
+            previous.groups().stream()
+                    .filter(group -> !current.groups().contains(group))
+                    .forEach(group -> removeMember(groupMembers, group, id));
+        }
+
+        /**
+         * Copies {@code members} into {@code index} under interned names and returns the names
+         * per member, in listing order.
+         */
+        private Map<UUID, List<String>> index(Map<String, Set<UUID>> members, Map<String, Set<UUID>> index) {
+            Map<UUID, List<String>> namesByUser = new LinkedHashMap<>();
+            members.forEach((name, ids) -> {
+                String interned = intern(name);
+                Set<UUID> copy = ConcurrentHashMap.newKeySet(ids.size());
+                copy.addAll(ids);
+                index.put(interned, copy);
+                ids.forEach(id -> namesByUser.computeIfAbsent(id, key -> new ArrayList<>()).add(interned));
+            });
+            return namesByUser;
+        }
+
+        private static void addMember(Map<String, Set<UUID>> index, String name, UUID id) {
+            index.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        private static void removeMember(Map<String, Set<UUID>> index, String name, UUID id) {
+            Set<UUID> members = index.get(name);
+            if (members != null) {
+                members.remove(id);
+            }
+        }
+
+        private String intern(String name) {
+            return names.computeIfAbsent(name, Function.identity());
+        }
+
+        private List<String> intern(List<String> userNames) {
+            if (userNames.isEmpty()) {
+                return List.of();
+            }
+            List<String> interned = userNames.stream().map(this::intern).toList();
+            InternedList shared = lists.computeIfAbsent(interned, InternedList::new);
+            shared.users++;
+            return shared.names;
+        }
+
+        private void release(List<String> userNames) {
+            if (!userNames.isEmpty()) {
+                lists.computeIfPresent(userNames, (key, shared) -> --shared.users == 0 ? null : shared);
+            }
+        }
+    }
+
+    /**
+     * A shared name list and the number of users holding it; only changed from the refresh thread.
+     */
+    private static final class InternedList {
+        private final List<String> names;
+        private int users;
+
+        InternedList(List<String> names) {
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.itm.space.backendresources.replica;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.cache.UserCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of every user of the realm, with realm roles and groups already resolved.
+ * Filled by a full sync when {@link #start() started}, kept current by incremental syncs from
+ * admin events every {@code syncInterval} and re-filled every {@code fullSyncInterval}.
+ * <p>
+ * Lookups are answered from memory only while the last successful sync is at most
+ * {@code maxStaleness} old. A miss, or any lookup while the copy is too stale, falls through to
+ * the loader (Keycloak) and the result is kept.
+ * <p>
+ * Each full sync checks that the realm saves admin events. While it does not, incremental syncs
+ * are skipped instead of reporting a sync that could not see any change, so the copy is only
+ * served for {@code maxStaleness} after each full sync.
+ */
+@Slf4j
+public class UserReplica implements UserCache, MeterBinder, AutoCloseable {
+
+    /**
+     * Admin event times come from the Keycloak clock; replay a little before a full sync started.
+     */
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(30);
+
+    private final KeycloakUserSync keycloakUserSync;
+    private final Duration maxStaleness;
+    private final Duration syncInterval;
+    private final Duration fullSyncInterval;
+    private final ScheduledExecutorService syncExecutor;
+    private final Clock clock;
+    private final Set<UUID> invalidatedDuringSync = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleLookups = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+    private final LongAdder fullSyncFailures = new LongAdder();
+    private final LongAdder incrementalSyncs = new LongAdder();
+    private final LongAdder incrementalSyncFailures = new LongAdder();
+    private volatile Map<UUID, UserResponse> users = new ConcurrentHashMap<>();
+    private volatile Instant syncedAt;
+    private volatile boolean fullSyncRunning;
+    private boolean fullSyncRequired = true;
+    private boolean adminEventsEnabled;
+    private long eventWatermark;
+
+    public UserReplica(KeycloakUserSync keycloakUserSync, Duration maxStaleness, Duration syncInterval,
+                       Duration fullSyncInterval, ScheduledExecutorService syncExecutor, Clock clock) {
+        this.keycloakUserSync = keycloakUserSync;
+        this.maxStaleness = maxStaleness;
+        this.syncInterval = syncInterval;
+        this.fullSyncInterval = fullSyncInterval;
+        this.syncExecutor = syncExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Schedules the syncs on the single sync thread; the first full sync runs in the background,
+     * lookups fall through to Keycloak until it has finished.
+     */
+    public void start() {
+        syncExecutor.execute(this::sync);
+        syncExecutor.scheduleWithFixedDelay(this::sync,
+                syncInterval.toMillis(), syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        syncExecutor.scheduleWithFixedDelay(this::requestFullSync,
+                fullSyncInterval.toMillis(), fullSyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public UserResponse get(UUID id, Function<UUID, UserResponse> loader) {
+        UserResponse user = getIfPresent(id);
+        if (user == null) {
+            user = loader.apply(id);
+            users.put(id, user);
+        }
+        return user;
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getAsync(UUID id,
+                                                    Function<UUID, CompletableFuture<UserResponse>> loader) {
+        UserResponse user = getIfPresent(id);
+        if (user != null) {
+            return CompletableFuture.completedFuture(user);
+        }
+        return loader.apply(id).thenApply(loaded -> {
+            users.put(id, loaded);
+            return loaded;
+        });
+    }
+
+    @Override
+    public UserResponse getIfPresent(UUID id) {
+        if (!isFresh()) {
+            staleLookups.increment();
+            return null;
+        }
+        UserResponse user = users.get(id);
+        (user != null ? hits : misses).increment();
+        return user;
+    }
+
+    @Override
+    public void put(UUID id, UserResponse user) {
+        users.put(id, user);
+    }
+
+    @Override
+    public void invalidate(UUID id) {
+        if (fullSyncRunning) {
+            invalidatedDuringSync.add(id);
+        }
+        users.remove(id);
+    }
+
+    public boolean isFresh() {
+        Instant lastSync = syncedAt;
+        return lastSync != null && !lastSync.plus(maxStaleness).isBefore(clock.instant());
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.replica.users", this, UserReplica::size)
+                .description("Users held by the local replica")
+                .register(registry);
+        Gauge.builder("user.replica.staleness", this, UserReplica::stalenessSeconds)
+                .description("Seconds since the last successful sync")
+                .baseUnit("seconds")
+                .register(registry);
+        lookups(registry, "hit", hits);
+        lookups(registry, "miss", misses);
+        lookups(registry, "stale", staleLookups);
+        syncs(registry, "full", "success", fullSyncs);
+        syncs(registry, "full", "failure", fullSyncFailures);
+        syncs(registry, "incremental", "success", incrementalSyncs);
+        syncs(registry, "incremental", "failure", incrementalSyncFailures);
+    }
+
+    @Override
+    public void close() {
+        syncExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs one sync step; called only from the sync thread.
+     */
+    void sync() {
+        if (fullSyncRequired) {
+            fullSync();
+        } else if (adminEventsEnabled) {
+            incrementalSync();
+        }
+    }
+
+    private void requestFullSync() {
+        fullSyncRequired = true;
+        sync();
+    }
+
+    private void fullSync() {
+        Instant startedAt = clock.instant();
+        invalidatedDuringSync.clear();
+        fullSyncRunning = true;
+        try {
+            adminEventsEnabled = keycloakUserSync.adminEventsEnabled();
+            if (!adminEventsEnabled) {
+                log.warn("Admin events are not saved for the realm, the user replica only refreshes every {}",
+                        fullSyncInterval);
+            }
+            Map<UUID, UserResponse> snapshot = new ConcurrentHashMap<>(keycloakUserSync.fetchAll());
+            users = snapshot;
+            invalidatedDuringSync.forEach(snapshot::remove);
+            eventWatermark = startedAt.minus(CLOCK_SKEW).toEpochMilli();
+            syncedAt = startedAt;
+            fullSyncRequired = false;
+            fullSyncs.increment();
+            log.info("Replicated {} users from Keycloak", snapshot.size());
+        } catch (RuntimeException ex) {
+            fullSyncFailures.increment();
+            log.warn("Full user sync failed, retrying in {}: {}", syncInterval, ex.getMessage());
+        } finally {
+            fullSyncRunning = false;
+        }
+    }
+
+    private void incrementalSync() {
+        Instant startedAt = clock.instant();
+        try {
+            KeycloakUserSync.Changes changes = keycloakUserSync.changesSince(eventWatermark);
+            if (changes.fullSyncRequired()) {
+                fullSyncRequired = true;
+                fullSync();
+                return;
+            }
+            for (UUID id : changes.users()) {
+                UserResponse user = keycloakUserSync.fetchUser(id);
+                if (user != null) {
+                    users.put(id, user);
+                } else {
+                    users.remove(id);
+                }
+            }
+            eventWatermark = changes.latestEventTime();
+            syncedAt = startedAt;
+            incrementalSyncs.increment();
+        } catch (RuntimeException ex) {
+            incrementalSyncFailures.increment();
+            log.warn("Incremental user sync failed: {}", ex.getMessage());
+        }
+    }
+
+    private double stalenessSeconds() {
+        Instant lastSync = syncedAt;
+        return lastSync != null ? Duration.between(lastSync, clock.instant()).toMillis() / 1000.0 : Double.NaN;
+    }
+
+    private static void syncs(MeterRegistry registry, String type, String outcome, LongAdder count) {
+        FunctionCounter.builder("user.replica.syncs", count, LongAdder::sum)
+                .description("Syncs of the local user replica from Keycloak")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static void lookups(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("user.replica.lookups", count, LongAdder::sum)
+                .description("Lookups against the local user replica")
+                .tag("result", result)
+                .register(registry);
+    }
+}
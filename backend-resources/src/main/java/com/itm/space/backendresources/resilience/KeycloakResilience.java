@@ -0,0 +1,246 @@
+package com.itm.space.backendresources.resilience;
+
+import com.itm.space.backendresources.security.KeycloakTokenManager;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Guards Keycloak admin calls. Every call passes a concurrency bulkhead and a circuit breaker,
+ * both failing fast with {@link #isRejection rejections} instead of queueing behind a degraded
+ * Keycloak; idempotent reads are additionally retried with jittered exponential backoff. Only
+ * upstream failures (no response, 5xx, 429) count against the breaker or trigger a retry; a call
+ * aborted because there is no service-account token is not one.
+ * <p>
+ * {@link #hedgedRead} also races a second attempt when the first has not answered within the
+ * configured latency percentile of recent reads. Both attempts run on the hedging executor, and the
+ * caller waits for them no longer than the hedging timeout.
+ * <p>
+ * The {@link Mono} variants apply the same breaker, bulkhead and retry to the non-blocking client.
+ */
+public class KeycloakResilience {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry retry;
+    private final Hedging hedging;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+    private final Counter hedges;
+
+    /**
+     * Any of the guards may be {@code null} to leave it out.
+     */
+    public KeycloakResilience(CircuitBreaker circuitBreaker, Bulkhead bulkhead, Retry retry, Hedging hedging,
+                              MeterRegistry registry) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.retry = retry;
+        this.hedging = hedging;
+        this.circuitOpenRejections = rejections(registry, "circuit_open");
+        this.bulkheadRejections = rejections(registry, "bulkhead_full");
+        this.hedges = Counter.builder("keycloak.client.hedges")
+                .description("Keycloak reads that started a hedged second attempt")
+                .register(registry);
+    }
+
+    /**
+     * No breaker, bulkhead, retry or hedging: calls run as they are.
+     */
+    public static KeycloakResilience none() {
+        return new KeycloakResilience(null, null, null, null, new SimpleMeterRegistry());
+    }
+
+    public static boolean isRejection(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    public static boolean isUpstreamFailure(Throwable ex) {
+        if (KeycloakTokenManager.isTokenUnavailable(ex)) {
+            return false;
+        }
+        if (ex instanceof WebApplicationException webApplicationException) {
+            return isUpstreamFailure(webApplicationException.getResponse().getStatus());
+        }
+        if (ex instanceof WebClientResponseException responseException) {
+            return isUpstreamFailure(responseException.getStatusCode().value());
+        }
+        return ex instanceof ProcessingException || ex instanceof WebClientRequestException
+                || ex instanceof TimeoutException;
+    }
+
+    private static boolean isUpstreamFailure(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    public <T> T write(Supplier<T> call) {
+        return guarded(call).get();
+    }
+
+    public <T> T read(Supplier<T> call) {
+        Supplier<T> guarded = guarded(call);
+        return retry != null ? Retry.decorateSupplier(retry, guarded).get() : guarded.get();
+    }
+
+    public <T> Mono<T> write(Mono<T> call) {
+        return guarded(call);
+    }
+
+    public <T> Mono<T> read(Mono<T> call) {
+        Mono<T> guarded = guarded(call);
+        return retry != null ? guarded.transformDeferred(RetryOperator.of(retry)) : guarded;
+    }
+
+    public <T> T hedgedRead(Supplier<T> call) {
+        if (hedging == null) {
+            return read(call);
+        }
+        Supplier<T> timed = () -> {
+            long start = System.nanoTime();
+            T result = read(call);
+            hedging.latencies().record(System.nanoTime() - start);
+            return result;
+        };
+        long delayNanos = hedging.delayNanos();
+        if (delayNanos < 0) {
+            return timed.get();
+        }
+        long deadline = System.nanoTime() + hedging.timeout().toNanos();
+        CompletableFuture<T> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(timed, hedging.executor());
+        } catch (RejectedExecutionException ex) {
+            return timed.get();
+        }
+        try {
+            return await(primary, delayNanos);
+        } catch (TimeoutException ex) {
+            CompletableFuture<T> attempts = primary;
+            try {
+                attempts = firstSuccess(primary, CompletableFuture.supplyAsync(timed, hedging.executor()));
+                hedges.increment();
+            } catch (RejectedExecutionException rejected) {
+                // Hedging executor saturated: keep waiting for the first attempt alone
+            }
+            try {
+                return await(attempts, deadline - System.nanoTime());
+            } catch (TimeoutException timeout) {
+                throw unwrap(timeout);
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long timeoutNanos) throws TimeoutException {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Keycloak", ex);
+        }
+    }
+
+    private <T> Mono<T> guarded(Mono<T> call) {
+        Mono<T> guarded = call;
+        if (bulkhead != null) {
+            guarded = guarded.transformDeferred(BulkheadOperator.of(bulkhead));
+        }
+        if (circuitBreaker != null) {
+            guarded = guarded.transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+        }
+        return guarded
+                .doOnError(CallNotPermittedException.class, ex -> circuitOpenRejections.increment())
+                .doOnError(BulkheadFullException.class, ex -> bulkheadRejections.increment());
+    }
+
+    private <T> Supplier<T> guarded(Supplier<T> call) {
+        Supplier<T> guarded = call;
+        if (bulkhead != null) {
+            guarded = Bulkhead.decorateSupplier(bulkhead, guarded);
+        }
+        if (circuitBreaker != null) {
+            guarded = CircuitBreaker.decorateSupplier(circuitBreaker, guarded);
+        }
+        Supplier<T> decorated = guarded;
+        return () -> {
+            try {
+                return decorated.get();
+            } catch (CallNotPermittedException ex) {
+                circuitOpenRejections.increment();
+                throw ex;
+            } catch (BulkheadFullException ex) {
+                bulkheadRejections.increment();
+                throw ex;
+            }
+        };
+    }
+
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, ex) -> {
+                if (ex == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static RuntimeException unwrap(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof RuntimeException runtimeException
+                ? runtimeException
+                : new IllegalStateException("Keycloak call failed: " + cause, cause);
+    }
+
+    private static Counter rejections(MeterRegistry registry, String reason) {
+        return Counter.builder("keycloak.client.rejections")
+                .description("Keycloak calls rejected without being attempted")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Hedging settings: a second attempt starts once the first has run longer than the
+     * {@code percentile} of recent read latencies, but never sooner than {@code minDelay}. The
+     * {@code executor} must not be one whose tasks call {@link #hedgedRead}.
+     */
+    public record Hedging(double percentile, Duration minDelay, Duration timeout, Executor executor,
+                          LatencyWindow latencies) {
+
+        long delayNanos() {
+            long observed = latencies.percentile(percentile);
+            return observed < 0 ? -1 : Math.max(observed, minDelay.toNanos());
+        }
+    }
+}
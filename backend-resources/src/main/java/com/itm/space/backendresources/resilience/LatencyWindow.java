@@ -0,0 +1,57 @@
+package com.itm.space.backendresources.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last {@code capacity} latencies in a ring buffer. Percentiles are recomputed from a sorted
+ * copy at most once per {@code recomputeIntervalNanos}; in between the last value is returned,
+ * so reading a percentile on the request path is a volatile read.
+ */
+public class LatencyWindow {
+
+    private static final int MINIMUM_SAMPLES = 32;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final long recomputeIntervalNanos;
+    private volatile double cachedPercentile = Double.NaN;
+    private volatile long cachedValue = -1;
+    private volatile long computedAt;
+
+    public LatencyWindow(int capacity, long recomputeIntervalNanos) {
+        this.samples = new AtomicLongArray(capacity);
+        this.recomputeIntervalNanos = recomputeIntervalNanos;
+        this.computedAt = System.nanoTime() - recomputeIntervalNanos;
+    }
+
+    public void record(long nanos) {
+        samples.set((int) (recorded.getAndIncrement() % samples.length()), nanos);
+    }
+
+    /**
+     * @return the latency at {@code percentile} (0..1) in nanoseconds, or {@code -1} while fewer
+     * than 32 samples have been recorded
+     */
+    public long percentile(double percentile) {
+        long now = System.nanoTime();
+        if (percentile == cachedPercentile && now - computedAt < recomputeIntervalNanos) {
+            return cachedValue;
+        }
+        int count = (int) Math.min(recorded.get(), samples.length());
+        long value = -1;
+        if (count >= MINIMUM_SAMPLES) {
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            value = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+        cachedValue = value;
+        cachedPercentile = percentile;
+        computedAt = now;
+        return value;
+    }
+}
@@ -0,0 +1,148 @@
+package com.itm.space.backendresources.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * JWK source that answers from memory. The set is first loaded in the background by
+ * {@link #start()}, reloaded every {@code refreshInterval}, and reloaded early (at most once per
+ * {@code minRefreshGap}) when a token names a key id the cached set does not contain. A failed
+ * reload keeps serving the previous set, so verification only ever waits on the network for
+ * the initial load, when a token arrives before it completed.
+ */
+@Slf4j
+public class CachingJwkSource implements JWKSource<SecurityContext>, MeterBinder, AutoCloseable {
+
+    private final Supplier<JWKSet> loader;
+    private final Duration refreshInterval;
+    private final Duration minRefreshGap;
+    private final ScheduledExecutorService refreshExecutor;
+    private final Clock clock;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new JWKSet(), Instant.EPOCH));
+    private final AtomicReference<CompletableFuture<Void>> inFlightRefresh = new AtomicReference<>();
+    private final LongAdder refreshFailures = new LongAdder();
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+    private volatile CompletableFuture<Void> initialLoad = CompletableFuture.completedFuture(null);
+
+    public CachingJwkSource(Supplier<JWKSet> loader, Duration refreshInterval, Duration minRefreshGap,
+                            ScheduledExecutorService refreshExecutor, Clock clock) {
+        this.loader = loader;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshGap = minRefreshGap;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts loading the key set in the background, so startup does not wait on the network, and
+     * schedules the periodic reloads. A failed initial load is logged and retried on the next
+     * unknown key id.
+     *
+     * @return the initial load
+     */
+    public CompletableFuture<Void> start() {
+        initialLoad = refreshAsync();
+        refreshExecutor.scheduleWithFixedDelay(this::refreshNow,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return initialLoad;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        if (!initialLoad.isDone()) {
+            initialLoad.join();
+        }
+        List<JWK> keys = jwkSelector.select(snapshot.get().keys());
+        if (keys.isEmpty()) {
+            refreshAsync();
+        }
+        return keys;
+    }
+
+    /**
+     * Starts a background reload unless one is already running or the last attempt was less than
+     * {@code minRefreshGap} ago; returns the reload in flight, if any.
+     */
+    public CompletableFuture<Void> refreshAsync() {
+        CompletableFuture<Void> running = inFlightRefresh.get();
+        if (running != null) {
+            return running;
+        }
+        if (lastRefreshAttempt.plus(minRefreshGap).isAfter(clock.instant())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> refresh = new CompletableFuture<>();
+        if (!inFlightRefresh.compareAndSet(null, refresh)) {
+            return inFlightRefresh.get();
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refreshNow();
+                } finally {
+                    inFlightRefresh.set(null);
+                    refresh.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlightRefresh.set(null);
+            refresh.complete(null);
+        }
+        return refresh;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.jwk.keys", this, source -> source.snapshot.get().keys().getKeys().size())
+                .description("Keys in the cached JWK set")
+                .register(registry);
+        Gauge.builder("security.jwk.age", this, source -> Duration.between(
+                        source.snapshot.get().loadedAt(), source.clock.instant()).toSeconds())
+                .description("Seconds since the cached JWK set was last loaded")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("security.jwk.refresh.failures", refreshFailures, LongAdder::doubleValue)
+                .description("JWK set reloads that failed and left the cached set in place")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void refreshNow() {
+        lastRefreshAttempt = clock.instant();
+        try {
+            JWKSet keys = loader.get();
+            snapshot.set(new Snapshot(keys, clock.instant()));
+            log.debug("Loaded JWK set with {} keys", keys.getKeys().size());
+        } catch (RuntimeException ex) {
+            refreshFailures.increment();
+            log.warn("Failed to load JWK set, keeping the cached one: {}", ex.getMessage());
+        }
+    }
+
+    private record Snapshot(JWKSet keys, Instant loadedAt) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.itm.space.backendresources.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps Keycloak {@code realm_access.roles} to {@code ROLE_*} authorities.
+ * <p>
+ * Resolved authorities are cached by token id ({@code jti}) until the token expires. Authority
+ * sets are interned per distinct role list, so every token carrying the same roles shares one
+ * immutable set of shared {@link GrantedAuthority} instances.
+ */
+public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken>, MeterBinder {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final Cache<String, Entry> byTokenId;
+    private final Cache<List<String>, Set<GrantedAuthority>> byRoles;
+    private final Cache<String, GrantedAuthority> byRole;
+    private final Clock clock;
+
+    public KeycloakJwtAuthenticationConverter(long maximumTokens, long maximumRoleSets, Clock clock, Ticker ticker) {
+        this.byTokenId = Caffeine.newBuilder()
+                .maximumSize(maximumTokens)
+                .expireAfter(new UntilTokenExpires(clock))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.byRoles = Caffeine.newBuilder()
+                .maximumSize(maximumRoleSets)
+                .recordStats()
+                .build();
+        this.byRole = Caffeine.newBuilder()
+                .maximumSize(maximumRoleSets)
+                .build();
+        this.clock = clock;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new JwtAuthenticationToken(jwt, resolveAuthorities(jwt));
+    }
+
+    public Set<GrantedAuthority> resolveAuthorities(Jwt jwt) {
+        String tokenId = jwt.getId();
+        Instant expiresAt = jwt.getExpiresAt();
+        if (tokenId == null || expiresAt == null || !expiresAt.isAfter(clock.instant())) {
+            return fromClaims(jwt);
+        }
+        Entry cached = byTokenId.getIfPresent(tokenId);
+        if (cached != null && cached.expiresAt().equals(expiresAt)) {
+            return cached.authorities();
+        }
+        Set<GrantedAuthority> resolved = fromClaims(jwt);
+        byTokenId.put(tokenId, new Entry(resolved, expiresAt));
+        return resolved;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byTokenId, "jwt-authorities");
+        CaffeineCacheMetrics.monitor(registry, byRoles, "jwt-role-sets");
+    }
+
+    private Set<GrantedAuthority> fromClaims(Jwt jwt) {
+        List<String> roles = realmRoles(jwt);
+        return roles.isEmpty() ? Set.of() : byRoles.get(roles, this::toAuthorities);
+    }
+
+    private Set<GrantedAuthority> toAuthorities(List<String> roles) {
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            authorities.add(byRole.get(role, key -> new SimpleGrantedAuthority(ROLE_PREFIX + key)));
+        }
+        return Set.copyOf(authorities);
+    }
+
+    private static List<String> realmRoles(Jwt jwt) {
+        if (!(jwt.getClaims().get("realm_access") instanceof Map<?, ?> realmAccess)
+                || !(realmAccess.get("roles") instanceof Collection<?> roles)) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(roles.size());
+        for (Object role : roles) {
+            if (role instanceof String name) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private record Entry(Set<GrantedAuthority> authorities, Instant expiresAt) {
+    }
+
+    private record UntilTokenExpires(Clock clock) implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String tokenId, Entry entry, long currentTime) {
+            return Math.max(0, Duration.between(clock.instant(), entry.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenId, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenId, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenId, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.itm.space.backendresources.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.AccessTokenResponse;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Service-account token for the Keycloak admin client. A background refresh replaces the token
+ * {@code refreshAhead} before it expires (at the latest halfway through its lifetime), and
+ * request threads read the current token from an atomic reference without locking.
+ * <p>
+ * Only when there is no usable token, at startup or after refreshes kept failing, does a request
+ * fetch one itself; concurrent requests wait for that single fetch on a lock that does not pin
+ * virtual threads. Failed refreshes are retried with exponential backoff from {@code minBackoff}
+ * to {@code maxBackoff}, and requests arriving during a backoff fail fast with 503 instead of
+ * calling the token endpoint again.
+ * <p>
+ * Registered on the admin client as a request filter that sets the bearer token; a 401 answer
+ * drops the token it was sent with. Without a token the filter aborts the call with a 503
+ * response marked by {@value #TOKEN_UNAVAILABLE}, which {@link #isTokenUnavailable} recognizes.
+ */
+@Slf4j
+public class KeycloakTokenManager implements ClientRequestFilter, ClientResponseFilter, AutoCloseable {
+
+    public static final String TOKEN_UNAVAILABLE = "X-Keycloak-Token-Unavailable";
+    private static final String BEARER = "Bearer ";
+    /**
+     * Tokens are not handed out this close to their expiry, so they cannot expire in flight.
+     */
+    private static final Duration EXPIRY_SKEW = Duration.ofSeconds(5);
+
+    private final Supplier<AccessTokenResponse> tokenEndpoint;
+    private final Duration refreshAhead;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService refreshExecutor;
+    private final Clock clock;
+    private final AtomicReference<Token> current = new AtomicReference<>();
+    private final Timer refreshes;
+    private final Timer failedRefreshes;
+    private final Counter waits;
+    private final ReentrantLock fetchLock = new ReentrantLock();
+    private Duration backoff;
+    private volatile Instant retryAt = Instant.MIN;
+
+    public KeycloakTokenManager(Supplier<AccessTokenResponse> tokenEndpoint, Duration refreshAhead,
+                                Duration minBackoff, Duration maxBackoff, ScheduledExecutorService refreshExecutor,
+                                Clock clock, MeterRegistry registry) {
+        this.tokenEndpoint = tokenEndpoint;
+        this.refreshAhead = refreshAhead;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.backoff = minBackoff;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.refreshes = refreshTimer(registry, "success");
+        this.failedRefreshes = refreshTimer(registry, "failure");
+        this.waits = Counter.builder("keycloak.token.waits")
+                .description("Admin calls that had to wait for a token to be fetched")
+                .register(registry);
+        Gauge.builder("keycloak.token.ttl", this, KeycloakTokenManager::ttlSeconds)
+                .description("Seconds until the current service-account token expires")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Fetches the first token in the background; calls made before it arrives fetch it themselves.
+     */
+    public void start() {
+        refreshExecutor.execute(this::refresh);
+    }
+
+    public String getAccessToken() {
+        Token token = current.get();
+        if (token != null && token.isUsable(clock.instant())) {
+            return token.value();
+        }
+        return awaitToken();
+    }
+
+    /**
+     * Exceptions thrown from a request filter reach the caller wrapped in a {@code ProcessingException},
+     * so a missing token aborts the call with a 503 response instead.
+     */
+    @Override
+    public void filter(ClientRequestContext request) {
+        String token;
+        try {
+            token = getAccessToken();
+        } catch (RuntimeException ex) {
+            log.warn("No Keycloak token for {} {}: {}", request.getMethod(), request.getUri(), ex.getMessage());
+            request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(TOKEN_UNAVAILABLE, "true")
+                    .build());
+            return;
+        }
+        request.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, BEARER + token);
+    }
+
+    /**
+     * Whether an admin call failed because no token could be had, not because Keycloak answered 503.
+     */
+    public static boolean isTokenUnavailable(Throwable ex) {
+        return ex instanceof WebApplicationException webApplicationException
+                && webApplicationException.getResponse().getHeaderString(TOKEN_UNAVAILABLE) != null;
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) {
+        if (response.getStatus() != 401) {
+            return;
+        }
+        Object authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        Token token = current.get();
+        if (token != null && (BEARER + token.value()).equals(authorization)) {
+            current.compareAndSet(token, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Background refresh; reschedules itself ahead of the new token's expiry, or after the
+     * backoff when the token endpoint fails.
+     */
+    void refresh() {
+        Duration next;
+        try {
+            Token token = fetch();
+            next = Duration.between(clock.instant(), token.refreshAt());
+        } catch (Throwable ex) {
+            next = Duration.between(clock.instant(), retryAt);
+            log.warn("Keycloak token refresh failed, retrying in {}: {}", next, ex.getMessage());
+        }
+        if (!refreshExecutor.isShutdown()) {
+            refreshExecutor.schedule(this::refresh, Math.max(next.toMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String awaitToken() {
+        waits.increment();
+        fetchLock.lock();
+        try {
+            Token token = current.get();
+            if (token != null && token.isUsable(clock.instant())) {
+                return token.value();
+            }
+            if (clock.instant().isBefore(retryAt)) {
+                throw new ServiceUnavailableException("Keycloak token endpoint unavailable, retrying at " + retryAt);
+            }
+            return fetch().value();
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    private Token fetch() {
+        fetchLock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            try {
+                AccessTokenResponse response = tokenEndpoint.get();
+                Instant issuedAt = clock.instant();
+                Duration lifetime = Duration.ofSeconds(response.getExpiresIn());
+                Duration refreshAfter = lifetime.minus(refreshAhead);
+                Token token = new Token(response.getToken(),
+                        issuedAt.plus(lifetime).minus(EXPIRY_SKEW),
+                        issuedAt.plus(refreshAfter.compareTo(lifetime.dividedBy(2)) > 0
+                                ? refreshAfter
+                                : lifetime.dividedBy(2)));
+                current.set(token);
+                backoff = minBackoff;
+                retryAt = Instant.MIN;
+                refreshes.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return token;
+            } catch (Throwable ex) {
+                failedRefreshes.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                retryAt = clock.instant().plus(backoff);
+                backoff = backoff.multipliedBy(2).compareTo(maxBackoff) < 0 ? backoff.multipliedBy(2) : maxBackoff;
+                throw ex;
+            }
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    private double ttlSeconds() {
+        Token token = current.get();
+        return token != null ? Duration.between(clock.instant(), token.expiresAt()).toMillis() / 1000.0 : 0;
+    }
+
+    private static Timer refreshTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("keycloak.token.refresh")
+                .description("Service-account token requests to the Keycloak token endpoint")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * @param expiresAt end of use, slightly before the real expiry
+     * @param refreshAt when the background refresh replaces the token
+     */
+    private record Token(String value, Instant expiresAt, Instant refreshAt) {
+
+        boolean isUsable(Instant now) {
+            return now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.itm.space.backendresources.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times bearer-token decoding and validation as {@code security.jwt.decode}, split by whether
+ * the token was accepted.
+ */
+public class TimedJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Timer accepted;
+    private final Timer rejected;
+
+    public TimedJwtDecoder(JwtDecoder delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.accepted = Timer.builder("security.jwt.decode").tag("outcome", "accepted").register(registry);
+        this.rejected = Timer.builder("security.jwt.decode").tag("outcome", "rejected").register(registry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        boolean decoded = false;
+        try {
+            Jwt jwt = delegate.decode(token);
+            decoded = true;
+            return jwt;
+        } finally {
+            (decoded ? accepted : rejected).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
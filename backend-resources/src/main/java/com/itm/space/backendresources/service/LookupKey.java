@@ -0,0 +1,13 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.request.UserDetail;
+
+import java.util.Set;
+import java.util.UUID;
+
+record LookupKey(UUID id, Set<UserDetail> include) {
+
+    boolean isFull() {
+        return include.containsAll(UserDetail.ALL);
+    }
+}
@@ -0,0 +1,41 @@
+package com.itm.space.backendresources.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls for the same key: while a call is in flight, later callers
+ * get the same future instead of starting another one.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Function<K, CompletableFuture<V>> call) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            call.apply(key).whenComplete((value, ex) -> {
+                inFlight.remove(key, pending);
+                if (ex != null) {
+                    pending.completeExceptionally(ex);
+                } else {
+                    pending.complete(value);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(ex);
+        }
+        return pending;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
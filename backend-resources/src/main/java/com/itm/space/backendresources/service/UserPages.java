@@ -0,0 +1,19 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import org.springframework.http.HttpStatus;
+
+final class UserPages {
+
+    private UserPages() {
+    }
+
+    static void check(int first, int max, int maxPageSize) {
+        if (first < 0) {
+            throw new BackendResourcesException("first must not be negative", HttpStatus.BAD_REQUEST);
+        }
+        if (max < 1 || max > maxPageSize) {
+            throw new BackendResourcesException("max must be between 1 and " + maxPageSize, HttpStatus.BAD_REQUEST);
+        }
+    }
+}
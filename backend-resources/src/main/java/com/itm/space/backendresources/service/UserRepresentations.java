@@ -0,0 +1,38 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+
+final class UserRepresentations {
+
+    private UserRepresentations() {
+    }
+
+    static UserRepresentation fromRequest(UserRequest userRequest) {
+        CredentialRepresentation password = preparePasswordRepresentation(userRequest.getPassword());
+        return prepareUserRepresentation(userRequest, password);
+    }
+
+    private static CredentialRepresentation preparePasswordRepresentation(String password) {
+        CredentialRepresentation credentialRepresentation = new CredentialRepresentation();
+        credentialRepresentation.setTemporary(false);
+        credentialRepresentation.setType(CredentialRepresentation.PASSWORD);
+        credentialRepresentation.setValue(password);
+        return credentialRepresentation;
+    }
+
+    private static UserRepresentation prepareUserRepresentation(UserRequest userRequest,
+                                                                CredentialRepresentation credentialRepresentation) {
+        UserRepresentation newUser = new UserRepresentation();
+        newUser.setUsername(userRequest.getUsername());
+        newUser.setEmail(userRequest.getEmail());
+        newUser.setCredentials(List.of(credentialRepresentation));
+        newUser.setEnabled(true);
+        newUser.setFirstName(userRequest.getFirstName());
+        newUser.setLastName(userRequest.getLastName());
+        return newUser;
+    }
+}
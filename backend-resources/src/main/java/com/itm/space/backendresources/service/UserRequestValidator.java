@@ -0,0 +1,24 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class UserRequestValidator {
+    private final Validator validator;
+
+    public Map<String, String> validate(UserRequest userRequest) {
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<UserRequest> violation : validator.validate(userRequest)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+}
@@ -1,14 +1,58 @@
 package com.itm.space.backendresources.service;
 
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface UserService {
 
-    void createUser(UserRequest userRequest);
+    /**
+     * @return the id of the created user
+     */
+    String createUser(UserRequest userRequest);
+
+    Map<Integer, UserCreationResult> createUsers(Iterator<UserRequest> userRequests);
 
     UserResponse getUserById(UUID id);
 
+    UserResponse getUserById(UUID id, Set<UserDetail> include);
+
+    UsersResponse getUsersByIds(Collection<UUID> ids);
+
+    /**
+     * One page of the users matching {@code search} (all users when {@code null}), without roles
+     * and groups.
+     */
+    List<UserResponse> searchUsers(String search, int first, int max);
+
+    /**
+     * Walks all users matching {@code search} page by page, handing each page to
+     * {@code pageConsumer} before the next one is requested.
+     */
+    void streamUsers(String search, Consumer<List<UserResponse>> pageConsumer);
+
+    /**
+     * @return the id of the user with exactly this username, or {@code null} if there is none
+     */
+    String findUserId(String username);
+
+    default CompletableFuture<UserResponse> getUserByIdAsync(UUID id) {
+        return CompletableFuture.completedFuture(getUserById(id));
+    }
+
+    default CompletableFuture<UserResponse> getUserByIdAsync(UUID id, Set<UserDetail> include) {
+        return CompletableFuture.completedFuture(getUserById(id, include));
+    }
+
 }
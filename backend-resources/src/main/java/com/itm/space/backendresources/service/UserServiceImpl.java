@@ -1,83 +1,350 @@
 package com.itm.space.backendresources.service;
 
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
+import com.itm.space.backendresources.cache.UserCache;
 import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.metrics.KeycloakMetrics;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import com.itm.space.backendresources.resilience.KeycloakResilience;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.itm.space.backendresources.metrics.KeycloakMetrics.Operation.CREATE_USER;
+import static com.itm.space.backendresources.metrics.KeycloakMetrics.Operation.GET_GROUPS;
+import static com.itm.space.backendresources.metrics.KeycloakMetrics.Operation.GET_ROLES;
+import static com.itm.space.backendresources.metrics.KeycloakMetrics.Operation.GET_USER;
+import static com.itm.space.backendresources.metrics.KeycloakMetrics.Operation.LIST_USERS;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "keycloak.client.mode", havingValue = "blocking", matchIfMissing = true)
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final Keycloak keycloakClient;
     private final UserMapper userMapper;
+    @Qualifier("keycloakExecutor")
+    private final ExecutorService keycloakExecutor;
+    private final UserCache userCache;
+    @Qualifier("userProvisioningExecutor")
+    private final ExecutorService userProvisioningExecutor;
+    private final UserRequestValidator userRequestValidator;
+    @Qualifier("batchLookupExecutor")
+    private final ExecutorService batchLookupExecutor;
+    private final KeycloakMetrics keycloakMetrics;
+    private final KeycloakResilience keycloakResilience;
+    private final MembershipIndex membershipIndex;
+    private final SingleFlight<LookupKey, UserResponse> inFlightLookups = new SingleFlight<>();
 
     @Value("${keycloak.realm}")
     private String realm;
+    @Value("${keycloak.lookup.concurrent}")
+    private boolean concurrentLookup;
+    @Value("${keycloak.lookup.timeout}")
+    private Duration lookupTimeout;
+    @Value("${keycloak.lookup.max-batch-size}")
+    private int maxBatchSize;
+    @Value("${keycloak.provisioning.concurrency}")
+    private int provisioningConcurrency;
+    @Value("${keycloak.listing.max-page-size}")
+    private int maxPageSize;
+    @Value("${keycloak.listing.stream-page-size}")
+    private int streamPageSize;
+    @Value("${execution.virtual-threads.pinning-guard}")
+    private boolean pinningGuard;
 
-    public void createUser(UserRequest userRequest) {
-        CredentialRepresentation password = preparePasswordRepresentation(userRequest.getPassword());
-        UserRepresentation user = prepareUserRepresentation(userRequest, password);
+    public String createUser(UserRequest userRequest) {
         try {
-            Response response = keycloakClient.realm(realm).users().create(user);
-            String userId = CreatedResponseUtil.getCreatedId(response);
-            log.info("Created UserId: {}", userId);
+            return callKeycloak(() -> create(userRequest));
         } catch (WebApplicationException ex) {
             log.error("Exception on \"createUser\": ", ex);
             throw new BackendResourcesException(ex.getMessage(), HttpStatus.resolve(ex.getResponse().getStatus()));
         }
     }
 
+    @Override
+    public Map<Integer, UserCreationResult> createUsers(Iterator<UserRequest> userRequests) {
+        Map<Integer, UserCreationResult> results = new ConcurrentSkipListMap<>();
+        Semaphore permits = new Semaphore(provisioningConcurrency);
+        int index = 0;
+        try {
+            while (userRequests.hasNext()) {
+                int itemIndex = index++;
+                UserRequest userRequest = userRequests.next();
+                Map<String, String> errors = userRequestValidator.validate(userRequest);
+                if (!errors.isEmpty()) {
+                    results.put(itemIndex, UserCreationResult.invalid(errors));
+                    continue;
+                }
+                permits.acquireUninterruptibly();
+                try {
+                    userProvisioningExecutor.execute(() -> {
+                        try {
+                            results.put(itemIndex, provision(userRequest));
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    permits.release();
+                    results.put(itemIndex,
+                            UserCreationResult.failed(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage()));
+                }
+            }
+        } finally {
+            permits.acquireUninterruptibly(provisioningConcurrency);
+        }
+        return results;
+    }
+
+    private String create(UserRequest userRequest) {
+        UserRepresentation user = UserRepresentations.fromRequest(userRequest);
+        String userId = keycloakResilience.write(() -> keycloakMetrics.record(CREATE_USER, () -> {
+            Response response = keycloakClient.realm(realm).users().create(user);
+            return CreatedResponseUtil.getCreatedId(response);
+        }));
+        log.info("Created UserId: {}", userId);
+        invalidateCachedUser(userId);
+        return userId;
+    }
+
+    private UserCreationResult provision(UserRequest userRequest) {
+        try {
+            return UserCreationResult.created(create(userRequest));
+        } catch (WebApplicationException ex) {
+            log.error("Exception on \"createUsers\": ", ex);
+            return UserCreationResult.failed(ex.getResponse().getStatus(), ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.error("Exception on \"createUsers\": ", ex);
+            HttpStatus status = KeycloakResilience.isRejection(ex)
+                    ? HttpStatus.SERVICE_UNAVAILABLE
+                    : HttpStatus.INTERNAL_SERVER_ERROR;
+            return UserCreationResult.failed(status.value(), ex.getMessage());
+        }
+    }
+
     @Override
     public UserResponse getUserById(UUID id) {
-        UserRepresentation userRepresentation;
-        List<RoleRepresentation> userRoles;
-        List<GroupRepresentation> userGroups;
+        return userCache.get(id, key -> loadUser(new LookupKey(key, UserDetail.ALL)));
+    }
+
+    @Override
+    public UserResponse getUserById(UUID id, Set<UserDetail> include) {
+        LookupKey key = new LookupKey(id, Set.copyOf(include));
+        if (key.isFull()) {
+            return getUserById(id);
+        }
+        UserResponse cached = userCache.getIfPresent(id);
+        if (cached != null) {
+            return userMapper.project(cached, include);
+        }
+        return loadUser(key);
+    }
+
+    @Override
+    public UsersResponse getUsersByIds(Collection<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxBatchSize) {
+            throw new BackendResourcesException("At most " + maxBatchSize + " ids can be requested at once",
+                    HttpStatus.BAD_REQUEST);
+        }
+        Map<UUID, CompletableFuture<UserResponse>> lookups = new LinkedHashMap<>();
+        for (UUID id : distinctIds) {
+            lookups.put(id, CompletableFuture.supplyAsync(() -> getUserById(id), batchLookupExecutor));
+        }
+        Map<UUID, UserResponse> users = new LinkedHashMap<>();
+        Map<UUID, String> misses = new LinkedHashMap<>();
+        lookups.forEach((id, lookup) -> {
+            try {
+                users.put(id, lookup.join());
+            } catch (CompletionException ex) {
+                misses.put(id, ex.getCause().getMessage());
+            }
+        });
+        return new UsersResponse(users, misses);
+    }
+
+    @Override
+    public List<UserResponse> searchUsers(String search, int first, int max) {
+        UserPages.check(first, max, maxPageSize);
         try {
-            userRepresentation = keycloakClient.realm(realm).users().get(String.valueOf(id)).toRepresentation();
-            userRoles = keycloakClient.realm(realm)
-                    .users().get(String.valueOf(id)).roles().getAll().getRealmMappings();
-            userGroups = keycloakClient.realm(realm).users().get(String.valueOf(id)).groups();
+            return callKeycloak(() -> listUsers(search, first, max));
+        } catch (WebApplicationException ex) {
+            log.error("Exception on \"searchUsers\": ", ex);
+            throw new BackendResourcesException(ex.getMessage(), HttpStatus.resolve(ex.getResponse().getStatus()));
+        }
+    }
+
+    @Override
+    public void streamUsers(String search, Consumer<List<UserResponse>> pageConsumer) {
+        for (int first = 0; ; first += streamPageSize) {
+            int pageStart = first;
+            List<UserResponse> page = callKeycloak(() -> listUsers(search, pageStart, streamPageSize));
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+            if (page.size() < streamPageSize) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String findUserId(String username) {
+        List<UserRepresentation> users = callKeycloak(() -> keycloakResilience.read(() ->
+                keycloakMetrics.record(LIST_USERS, () -> keycloakClient.realm(realm).users().search(username, true))));
+        return users.isEmpty() ? null : users.get(0).getId();
+    }
+
+    private List<UserResponse> listUsers(String search, int first, int max) {
+        List<UserRepresentation> users = keycloakResilience.read(() -> keycloakMetrics.record(LIST_USERS,
+                () -> keycloakClient.realm(realm).users().search(search, first, max, true)));
+        return users.stream().map(this::listed).toList();
+    }
+
+    /**
+     * Roles and groups come from the membership index when it is ready and are left out otherwise.
+     */
+    private UserResponse listed(UserRepresentation user) {
+        if (!membershipIndex.isReady()) {
+            return userMapper.userRepresentationToUserResponse(user, null, null);
+        }
+        UUID id = UUID.fromString(user.getId());
+        return userMapper.userRepresentationToUserResponseWithNames(user,
+                membershipIndex.roles(id), membershipIndex.groups(id));
+    }
+
+    private UserResponse loadUser(LookupKey key) {
+        try {
+            return join(inFlightLookups.execute(key, this::fetchUser));
         } catch (RuntimeException ex) {
+            if (KeycloakResilience.isRejection(ex)) {
+                throw ex;
+            }
             log.error("Exception on \"getUserById\": ", ex);
             throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return userMapper.userRepresentationToUserResponse(userRepresentation, userRoles, userGroups);
-    }
-
-    private CredentialRepresentation preparePasswordRepresentation(String password) {
-        CredentialRepresentation credentialRepresentation = new CredentialRepresentation();
-        credentialRepresentation.setTemporary(false);
-        credentialRepresentation.setType(CredentialRepresentation.PASSWORD);
-        credentialRepresentation.setValue(password);
-        return credentialRepresentation;
-    }
-
-    private UserRepresentation prepareUserRepresentation(UserRequest userRequest,
-                                                         CredentialRepresentation credentialRepresentation) {
-        UserRepresentation newUser = new UserRepresentation();
-        newUser.setUsername(userRequest.getUsername());
-        newUser.setEmail(userRequest.getEmail());
-        newUser.setCredentials(List.of(credentialRepresentation));
-        newUser.setEnabled(true);
-        newUser.setFirstName(userRequest.getFirstName());
-        newUser.setLastName(userRequest.getLastName());
-        return newUser;
+    }
+
+    private CompletableFuture<UserResponse> fetchUser(LookupKey key) {
+        boolean withRoles = key.include().contains(UserDetail.ROLES);
+        boolean withGroups = key.include().contains(UserDetail.GROUPS);
+        try {
+            UserResource userResource = keycloakClient.realm(realm).users().get(String.valueOf(key.id()));
+            if (membershipIndex.isReady()) {
+                Supplier<UserResponse> indexed = () -> userMapper.userRepresentationToUserResponseWithNames(
+                        representation(userResource),
+                        withRoles ? membershipIndex.roles(key.id()) : null,
+                        withGroups ? membershipIndex.groups(key.id()) : null);
+                return concurrentLookup
+                        ? supplyAsync(indexed)
+                        : CompletableFuture.completedFuture(callKeycloak(indexed));
+            }
+            if (!concurrentLookup) {
+                return CompletableFuture.completedFuture(callKeycloak(() ->
+                        userMapper.userRepresentationToUserResponse(
+                                representation(userResource),
+                                withRoles ? roles(userResource) : null,
+                                withGroups ? groups(userResource) : null)));
+            }
+            CompletableFuture<UserRepresentation> representationFuture =
+                    supplyAsync(() -> representation(userResource));
+            CompletableFuture<List<RoleRepresentation>> rolesFuture = withRoles
+                    ? supplyAsync(() -> roles(userResource))
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<List<GroupRepresentation>> groupsFuture = withGroups
+                    ? supplyAsync(() -> groups(userResource))
+                    : CompletableFuture.completedFuture(null);
+            return CompletableFuture.allOf(representationFuture, rolesFuture, groupsFuture)
+                    .thenApply(ignored -> userMapper.userRepresentationToUserResponse(
+                            representationFuture.join(), rolesFuture.join(), groupsFuture.join()));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private UserRepresentation representation(UserResource userResource) {
+        return keycloakResilience.hedgedRead(() -> keycloakMetrics.record(GET_USER, userResource::toRepresentation));
+    }
+
+    private List<RoleRepresentation> roles(UserResource userResource) {
+        return keycloakResilience.read(() ->
+                keycloakMetrics.record(GET_ROLES, () -> userResource.roles().getAll().getRealmMappings()));
+    }
+
+    private List<GroupRepresentation> groups(UserResource userResource) {
+        return keycloakResilience.read(() -> keycloakMetrics.record(GET_GROUPS, userResource::groups));
+    }
+
+    /**
+     * Runs a blocking Keycloak call inline, except on a virtual thread with the pinning
+     * guard on, where it is handed to {@code keycloakExecutor} so the client's
+     * synchronized sections never pin a carrier thread.
+     */
+    private <T> T callKeycloak(Supplier<T> call) {
+        if (pinningGuard && Thread.currentThread().isVirtual()) {
+            return join(supplyAsync(call));
+        }
+        return call.get();
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, keycloakExecutor)
+                .orTimeout(lookupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Keycloak call did not complete: " + ex.getCause(), ex.getCause());
+        }
+    }
+
+    private void invalidateCachedUser(String userId) {
+        try {
+            userCache.invalidate(UUID.fromString(userId));
+        } catch (IllegalArgumentException ex) {
+            log.warn("Created user id {} is not a UUID, skipping cache invalidation", userId);
+        }
     }
 }
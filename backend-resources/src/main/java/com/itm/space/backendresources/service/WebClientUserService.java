@@ -0,0 +1,397 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.request.UserDetail;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
+import com.itm.space.backendresources.cache.UserCache;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * {@link UserService} that talks to the Keycloak admin REST API through a non-blocking
+ * {@link WebClient}. Enabled with {@code keycloak.client.mode=reactive}.
+ * <p>
+ * Calls go through the same circuit breaker, bulkhead and retry as the blocking client. A failed
+ * token request is cached for a backoff that doubles from {@code keycloak.token.min-backoff} up to
+ * {@code keycloak.token.max-backoff}, and calls during the backoff fail with 503.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "keycloak.client.mode", havingValue = "reactive")
+@RequiredArgsConstructor
+public class WebClientUserService implements UserService {
+    private static final Duration TOKEN_EXPIRY_SKEW = Duration.ofSeconds(30);
+    private static final ParameterizedTypeReference<List<RoleRepresentation>> ROLE_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<GroupRepresentation>> GROUP_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<UserRepresentation>> USER_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+
+    @Qualifier("keycloakWebClient")
+    private final WebClient keycloakWebClient;
+    private final UserMapper userMapper;
+    private final UserCache userCache;
+    private final UserRequestValidator userRequestValidator;
+    private final MembershipIndex membershipIndex;
+    private final KeycloakResilience keycloakResilience;
+    private final SingleFlight<LookupKey, UserResponse> inFlightLookups = new SingleFlight<>();
+    private final AtomicInteger tokenFailures = new AtomicInteger();
+    private final Mono<String> accessToken = Mono.defer(this::requestToken)
+            .doOnNext(token -> tokenFailures.set(0))
+            .onErrorMap(ex -> {
+                log.error("Exception on token request: ", ex);
+                return new BackendResourcesException("Keycloak token endpoint is unavailable",
+                        HttpStatus.SERVICE_UNAVAILABLE);
+            })
+            .cache(token -> Duration.ofSeconds(token.getExpiresIn()).minus(TOKEN_EXPIRY_SKEW),
+                    ex -> tokenBackoff(),
+                    () -> Duration.ZERO)
+            .map(AccessTokenResponse::getToken);
+
+    @Value("${keycloak.realm}")
+    private String realm;
+    @Value("${keycloak.resource}")
+    private String clientId;
+    @Value("${keycloak.credentials.secret}")
+    private String secretKey;
+    @Value("${keycloak.token.min-backoff}")
+    private Duration minTokenBackoff;
+    @Value("${keycloak.token.max-backoff}")
+    private Duration maxTokenBackoff;
+    @Value("${keycloak.lookup.timeout}")
+    private Duration lookupTimeout;
+    @Value("${keycloak.lookup.max-batch-size}")
+    private int maxBatchSize;
+    @Value("${keycloak.lookup.batch-concurrency}")
+    private int batchConcurrency;
+    @Value("${keycloak.provisioning.concurrency}")
+    private int provisioningConcurrency;
+    @Value("${keycloak.listing.max-page-size}")
+    private int maxPageSize;
+    @Value("${keycloak.listing.stream-page-size}")
+    private int streamPageSize;
+
+    @Override
+    public String createUser(UserRequest userRequest) {
+        return block("createUser", create(userRequest));
+    }
+
+    @Override
+    public Map<Integer, UserCreationResult> createUsers(Iterator<UserRequest> userRequests) {
+        return Flux.fromIterable(() -> userRequests)
+                .index()
+                .flatMapSequential(indexed -> provision(indexed.getT2())
+                        .map(result -> Tuples.of(indexed.getT1().intValue(), result)), provisioningConcurrency)
+                .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new)
+                .block();
+    }
+
+    @Override
+    public UserResponse getUserById(UUID id) {
+        return join(getUserByIdAsync(id));
+    }
+
+    @Override
+    public UserResponse getUserById(UUID id, Set<UserDetail> include) {
+        return join(getUserByIdAsync(id, include));
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getUserByIdAsync(UUID id) {
+        return getUserByIdAsync(id, UserDetail.ALL);
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getUserByIdAsync(UUID id, Set<UserDetail> include) {
+        LookupKey key = new LookupKey(id, Set.copyOf(include));
+        if (key.isFull()) {
+            return userCache.getAsync(id, userId ->
+                    inFlightLookups.execute(key, lookupKey -> fetchUser(lookupKey).toFuture()));
+        }
+        UserResponse cached = userCache.getIfPresent(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(userMapper.project(cached, include));
+        }
+        return inFlightLookups.execute(key, lookupKey -> fetchUser(lookupKey).toFuture());
+    }
+
+    @Override
+    public UsersResponse getUsersByIds(Collection<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxBatchSize) {
+            throw new BackendResourcesException("At most " + maxBatchSize + " ids can be requested at once",
+                    HttpStatus.BAD_REQUEST);
+        }
+        Map<UUID, UserResponse> users = new LinkedHashMap<>();
+        Map<UUID, String> misses = new LinkedHashMap<>();
+        Flux.fromIterable(distinctIds)
+                .flatMapSequential(id -> Mono.fromFuture(() -> getUserByIdAsync(id))
+                        .map(user -> new Lookup(id, user, null))
+                        .onErrorResume(ex -> Mono.just(new Lookup(id, null, ex.getMessage()))), batchConcurrency)
+                .doOnNext(lookup -> {
+                    if (lookup.user() != null) {
+                        users.put(lookup.id(), lookup.user());
+                    } else {
+                        misses.put(lookup.id(), lookup.miss());
+                    }
+                })
+                .blockLast();
+        return new UsersResponse(users, misses);
+    }
+
+    @Override
+    public List<UserResponse> searchUsers(String search, int first, int max) {
+        UserPages.check(first, max, maxPageSize);
+        return block("searchUsers", listUsers(search, first, max));
+    }
+
+    @Override
+    public void streamUsers(String search, Consumer<List<UserResponse>> pageConsumer) {
+        for (int first = 0; ; first += streamPageSize) {
+            List<UserResponse> page = block("streamUsers", listUsers(search, first, streamPageSize));
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+            if (page.size() < streamPageSize) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String findUserId(String username) {
+        List<UserRepresentation> users = block("findUserId", keycloakResilience.read(accessToken.flatMap(token ->
+                        keycloakWebClient.get()
+                                .uri(uri -> uri.path("/admin/realms/{realm}/users")
+                                        .queryParam("username", username)
+                                        .queryParam("exact", true)
+                                        .queryParam("briefRepresentation", true)
+                                        .build(realm))
+                                .headers(headers -> headers.setBearerAuth(token))
+                                .retrieve()
+                                .bodyToMono(USER_LIST)))
+                .defaultIfEmpty(List.of())
+                .timeout(lookupTimeout));
+        return users.isEmpty() ? null : users.get(0).getId();
+    }
+
+    private Mono<List<UserResponse>> listUsers(String search, int first, int max) {
+        return keycloakResilience.read(accessToken.flatMap(token -> keycloakWebClient.get()
+                        .uri(uri -> uri.path("/admin/realms/{realm}/users")
+                                .queryParamIfPresent("search", Optional.ofNullable(search))
+                                .queryParam("first", first)
+                                .queryParam("max", max)
+                                .queryParam("briefRepresentation", true)
+                                .build(realm))
+                        .headers(headers -> headers.setBearerAuth(token))
+                        .retrieve()
+                        .bodyToMono(USER_LIST)))
+                .defaultIfEmpty(List.of())
+                .timeout(lookupTimeout)
+                .map(users -> users.stream().map(this::listed).toList());
+    }
+
+    /**
+     * Roles and groups come from the membership index when it is ready and are left out otherwise.
+     */
+    private UserResponse listed(UserRepresentation user) {
+        if (!membershipIndex.isReady()) {
+            return userMapper.userRepresentationToUserResponse(user, null, null);
+        }
+        UUID id = UUID.fromString(user.getId());
+        return userMapper.userRepresentationToUserResponseWithNames(user,
+                membershipIndex.roles(id), membershipIndex.groups(id));
+    }
+
+    private Mono<UserResponse> fetchUser(LookupKey key) {
+        String id = String.valueOf(key.id());
+        Mono<UserRepresentation> representation = get("/users/{id}", UserRepresentation.class, id);
+        if (membershipIndex.isReady()) {
+            return mapErrors(representation.map(user ->
+                    userMapper.userRepresentationToUserResponseWithNames(user,
+                            key.include().contains(UserDetail.ROLES) ? membershipIndex.roles(key.id()) : null,
+                            key.include().contains(UserDetail.GROUPS) ? membershipIndex.groups(key.id()) : null)));
+        }
+        Mono<Optional<List<RoleRepresentation>>> roles = key.include().contains(UserDetail.ROLES)
+                ? get("/users/{id}/role-mappings/realm", ROLE_LIST, id).map(Optional::of)
+                : Mono.just(Optional.empty());
+        Mono<Optional<List<GroupRepresentation>>> groups = key.include().contains(UserDetail.GROUPS)
+                ? get("/users/{id}/groups", GROUP_LIST, id).map(Optional::of)
+                : Mono.just(Optional.empty());
+        return mapErrors(Mono.zip(representation, roles, groups)
+                .map(result -> userMapper.userRepresentationToUserResponse(result.getT1(),
+                        result.getT2().orElse(null), result.getT3().orElse(null))));
+    }
+
+    private Mono<UserResponse> mapErrors(Mono<UserResponse> lookup) {
+        return lookup
+                .timeout(lookupTimeout)
+                .onErrorMap(ex -> !isMapped(ex), ex -> {
+                    log.error("Exception on \"getUserById\": ", ex);
+                    return new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    private Mono<String> create(UserRequest userRequest) {
+        return keycloakResilience.write(accessToken.flatMap(token -> keycloakWebClient.post()
+                        .uri("/admin/realms/{realm}/users", realm)
+                        .headers(headers -> headers.setBearerAuth(token))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UserRepresentations.fromRequest(userRequest))
+                        .retrieve()
+                        .toBodilessEntity()))
+                .timeout(lookupTimeout)
+                .map(response -> createdId(response.getHeaders().getLocation()))
+                .doOnNext(userId -> {
+                    log.info("Created UserId: {}", userId);
+                    invalidateCachedUser(userId);
+                });
+    }
+
+    private Mono<UserCreationResult> provision(UserRequest userRequest) {
+        Map<String, String> errors = userRequestValidator.validate(userRequest);
+        if (!errors.isEmpty()) {
+            return Mono.just(UserCreationResult.invalid(errors));
+        }
+        return create(userRequest)
+                .map(UserCreationResult::created)
+                .onErrorResume(ex -> {
+                    log.error("Exception on \"createUsers\": ", ex);
+                    int status = ex instanceof WebClientResponseException responseException
+                            ? responseException.getStatusCode().value()
+                            : ex instanceof BackendResourcesException backendException
+                            ? backendException.getHttpStatus().value()
+                            : HttpStatus.INTERNAL_SERVER_ERROR.value();
+                    return Mono.just(UserCreationResult.failed(status, ex.getMessage()));
+                });
+    }
+
+    /**
+     * Blocks on a Keycloak call, mapping upstream error responses to their status and connection
+     * and timeout failures to 500. Token failures and resilience rejections keep their own status.
+     */
+    private <T> T block(String operation, Mono<T> call) {
+        return call
+                .onErrorMap(ex -> !isMapped(ex), ex -> {
+                    log.error("Exception on \"{}\": ", operation, ex);
+                    HttpStatus status = ex instanceof WebClientResponseException responseException
+                            ? HttpStatus.resolve(responseException.getStatusCode().value())
+                            : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return new BackendResourcesException(ex.getMessage(), status);
+                })
+                .block();
+    }
+
+    private static boolean isMapped(Throwable ex) {
+        return ex instanceof BackendResourcesException || KeycloakResilience.isRejection(ex);
+    }
+
+    private <T> Mono<T> get(String path, Class<T> type, Object id) {
+        return keycloakResilience.read(accessToken.flatMap(token -> keycloakWebClient.get()
+                .uri("/admin/realms/{realm}" + path, realm, id)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(type)));
+    }
+
+    private <T> Mono<T> get(String path, ParameterizedTypeReference<T> type, Object id) {
+        return keycloakResilience.read(accessToken.flatMap(token -> keycloakWebClient.get()
+                .uri("/admin/realms/{realm}" + path, realm, id)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(type)));
+    }
+
+    private Mono<AccessTokenResponse> requestToken() {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "client_credentials");
+        form.add("client_id", clientId);
+        form.add("client_secret", secretKey);
+        return keycloakWebClient.post()
+                .uri("/realms/{realm}/protocol/openid-connect/token", realm)
+                .body(BodyInserters.fromFormData(form))
+                .retrieve()
+                .bodyToMono(AccessTokenResponse.class);
+    }
+
+    private Duration tokenBackoff() {
+        Duration backoff = minTokenBackoff.multipliedBy(1L << Math.min(tokenFailures.getAndIncrement(), 20));
+        return backoff.compareTo(maxTokenBackoff) < 0 ? backoff : maxTokenBackoff;
+    }
+
+    private static String createdId(URI location) {
+        if (location == null) {
+            throw new IllegalStateException("Keycloak did not return the created user location");
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private void invalidateCachedUser(String userId) {
+        try {
+            userCache.invalidate(UUID.fromString(userId));
+        } catch (IllegalArgumentException ex) {
+            log.warn("Created user id {} is not a UUID, skipping cache invalidation", userId);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record Lookup(UUID id, UserResponse user, String miss) {
+    }
+}
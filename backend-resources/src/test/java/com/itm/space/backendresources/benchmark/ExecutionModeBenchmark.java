@@ -0,0 +1,129 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.cache.NoOpUserCache;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.metrics.KeycloakMetrics;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import com.itm.space.backendresources.service.UserRequestValidator;
+import com.itm.space.backendresources.service.UserServiceImpl;
+import com.itm.space.backendresources.support.KeycloakStub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.JacksonProvider;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.mapstruct.factory.Mappers;
+
+import javax.ws.rs.client.ClientBuilder;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
+
+/**
+ * Compares the sustained lookup rate of {@link UserServiceImpl} when request work runs on a
+ * Tomcat-sized platform pool versus one virtual thread per request, against a Keycloak stub
+ * with a fixed per-call latency. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmark {
+
+    private static final int CLIENTS = 1000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(20);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    private static KeycloakStub keycloakStub;
+    private static Keycloak keycloak;
+
+    @BeforeAll
+    static void startKeycloakStub() throws IOException {
+        keycloakStub = new KeycloakStub().latency(UPSTREAM_LATENCY);
+        keycloak = KeycloakBuilder.builder()
+                .serverUrl(keycloakStub.authServerUrl())
+                .realm("ITM")
+                .grantType(CLIENT_CREDENTIALS)
+                .clientId("backend-resources")
+                .clientSecret("secret")
+                .resteasyClient(((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                        .connectionPoolSize(CLIENTS)
+                        .maxPooledPerRoute(CLIENTS)
+                        .register(JacksonProvider.class, 100)
+                        .build())
+                .build();
+    }
+
+    @AfterAll
+    static void stopKeycloakStub() {
+        keycloak.close();
+        keycloakStub.close();
+    }
+
+    @Test
+    void platformThreadRequests() throws Exception {
+        measure("platform threads (" + TOMCAT_MAX_THREADS + ")",
+                Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), false);
+    }
+
+    @Test
+    void virtualThreadRequestsWithPinningGuard() throws Exception {
+        measure("virtual threads, pinning guard", Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    @Test
+    void virtualThreadRequestsWithoutPinningGuard() throws Exception {
+        measure("virtual threads, no pinning guard", Executors.newVirtualThreadPerTaskExecutor(), false);
+    }
+
+    private void measure(String mode, ExecutorService requestExecutor, boolean pinningGuard) throws Exception {
+        ExecutorService keycloakExecutor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        UserServiceImpl userService = new UserServiceImpl(keycloak, Mappers.getMapper(UserMapper.class),
+                keycloakExecutor, new NoOpUserCache(), keycloakExecutor,
+                new UserRequestValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                keycloakExecutor, new KeycloakMetrics(new SimpleMeterRegistry()),
+                KeycloakResilience.none(), MembershipIndex.disabled());
+        setField(userService, "realm", "ITM");
+        setField(userService, "lookupTimeout", Duration.ofSeconds(30));
+        setField(userService, "pinningGuard", pinningGuard);
+
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + MEASUREMENT.toNanos();
+        for (int client = 0; client < CLIENTS; client++) {
+            requestExecutor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        userService.getUserById(UUID.randomUUID());
+                        completed.increment();
+                    } catch (RuntimeException ex) {
+                        failed.increment();
+                    }
+                }
+            });
+        }
+        requestExecutor.shutdown();
+        requestExecutor.awaitTermination(MEASUREMENT.toSeconds() + 60, TimeUnit.SECONDS);
+        keycloakExecutor.shutdown();
+
+        System.out.printf("%-36s %8.0f req/s  (%d ok, %d failed, %d clients, %d ms upstream latency)%n",
+                mode, completed.sum() / (double) MEASUREMENT.toSeconds(), completed.sum(), failed.sum(),
+                CLIENTS, UPSTREAM_LATENCY.toMillis());
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        java.lang.reflect.Field field = UserServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.itm.space.backendresources.api.response.UserResponse;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the JSON of the {@link UserResponse} that {@code UserMapper} would build, straight from
+ * the Keycloak representations: no intermediate name lists, field names pre-encoded. Output is the
+ * bean serializer's byte for byte (declaration order, {@code null} names written, {@code null} role
+ * and group lists omitted), which {@code RepresentationJsonWriterTest} checks. It exists for
+ * {@code UserResponseSerializationBenchmark} only.
+ */
+final class RepresentationJsonWriter {
+
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString ROLES = new SerializedString("roles");
+    private static final SerializedString GROUPS = new SerializedString("groups");
+
+    private final JsonFactory factory;
+
+    RepresentationJsonWriter(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    byte[] writeAsBytes(UserRepresentation user, List<RoleRepresentation> roles, List<GroupRepresentation> groups)
+            throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder()) {
+            write(user, roles, groups, bytes);
+            return bytes.toByteArray();
+        }
+    }
+
+    void write(UserRepresentation user, List<RoleRepresentation> roles, List<GroupRepresentation> groups,
+               OutputStream out) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName(FIRST_NAME);
+            generator.writeString(user.getFirstName());
+            generator.writeFieldName(LAST_NAME);
+            generator.writeString(user.getLastName());
+            generator.writeFieldName(EMAIL);
+            generator.writeString(user.getEmail());
+            if (roles != null) {
+                generator.writeFieldName(ROLES);
+                generator.writeStartArray(roles, roles.size());
+                for (RoleRepresentation role : roles) {
+                    generator.writeString(role.getName());
+                }
+                generator.writeEndArray();
+            }
+            if (groups != null) {
+                generator.writeFieldName(GROUPS);
+                generator.writeStartArray(groups, groups.size());
+                for (GroupRepresentation group : groups) {
+                    generator.writeString(group.getName());
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.mapper.UserMapper;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class RepresentationJsonWriterTest {
+
+    private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final RepresentationJsonWriter writer = new RepresentationJsonWriter(objectMapper.getFactory());
+
+    @Test
+    void writeAsBytes_MatchesTheUserResponseJson() throws IOException {
+        UserRepresentation user = user("John", "Doe", "john.doe@example.com");
+        List<RoleRepresentation> roles = List.of(role("ROLE_USER"), role("ROLE_MODERATOR"));
+        List<GroupRepresentation> groups = List.of(group("Friends"));
+
+        assertSameJson(user, roles, groups);
+    }
+
+    @Test
+    void writeAsBytes_NullsAndEmptyLists_MatchTheUserResponseJson() throws IOException {
+        assertSameJson(user(null, null, null), null, null);
+        assertSameJson(user("John", null, "john.doe@example.com"), List.of(), List.of(group(null)));
+    }
+
+    @Test
+    void writeAsBytes_EscapedCharacters_MatchTheUserResponseJson() throws IOException {
+        UserRepresentation user = user("Jöhn \"J\"", "Doe\\Dœ", "</script> \n@example.com");
+
+        assertSameJson(user, List.of(role("ROLE_\u0001")), List.of(group("Gruppe 😀")));
+    }
+
+    private void assertSameJson(UserRepresentation user, List<RoleRepresentation> roles,
+                                List<GroupRepresentation> groups) throws IOException {
+        byte[] expected = objectMapper.writeValueAsBytes(
+                userMapper.userRepresentationToUserResponse(user, roles, groups));
+
+        assertArrayEquals(expected, writer.writeAsBytes(user, roles, groups));
+    }
+
+    private static UserRepresentation user(String firstName, String lastName, String email) {
+        UserRepresentation user = new UserRepresentation();
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static RoleRepresentation role(String name) {
+        RoleRepresentation role = new RoleRepresentation();
+        role.setName(name);
+        return role;
+    }
+
+    private static GroupRepresentation group(String name) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setName(name);
+        return group;
+    }
+}
@@ -0,0 +1,121 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.BackendResourcesApplication;
+import com.itm.space.backendresources.support.KeycloakStub;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Starts the application in a fresh JVM {@code startup.runs} times, with {@link KeycloakStub}
+ * standing in for Keycloak, and prints the time from process launch until
+ * {@code GET /api/users/{id}} first succeeds. Run with {@code mvn test -Pbenchmark
+ * -Dtest=StartupBenchmark}; by default the test classpath is started, {@code -Dstartup.jar} starts
+ * a packaged jar instead and {@code -Dstartup.jvm-args} adds JVM options. To measure the
+ * fast-startup build, after {@code mvn package -Pfast-startup}:
+ * <pre>
+ * -Dstartup.jar=target/backend-resources-0.0.1-SNAPSHOT.jar
+ * -Dstartup.jvm-args="-XX:SharedArchiveFile=target/backend-resources.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=prod"
+ * </pre>
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+
+    private static final int RUNS = Integer.getInteger("startup.runs", 3);
+    private static final String JAR = System.getProperty("startup.jar", "");
+    private static final String JVM_ARGS = System.getProperty("startup.jvm-args", "");
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    @Test
+    void timeToFirstSuccessfulRequest() throws Exception {
+        try (KeycloakStub keycloakStub = new KeycloakStub()) {
+            String token = keycloakStub.issueToken("moderator", List.of("MODERATOR"));
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+            List<Long> millis = new ArrayList<>();
+            for (int run = 1; run <= RUNS; run++) {
+                long elapsed = startAndAwaitFirstSuccess(keycloakStub, client, token, run);
+                System.out.printf("Run %d: first successful request after %d ms%n", run, elapsed);
+                millis.add(elapsed);
+            }
+            millis.sort(null);
+            System.out.printf("Time to first successful request over %d runs%s: min %d ms, median %d ms, max %d ms%n",
+                    RUNS, JVM_ARGS.isBlank() ? "" : " with " + JVM_ARGS,
+                    millis.get(0), millis.get(millis.size() / 2), millis.get(millis.size() - 1));
+        }
+    }
+
+    private long startAndAwaitFirstSuccess(KeycloakStub keycloakStub, HttpClient client, String token, int run)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        File log = new File("target/startup-benchmark-" + run + ".log");
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/"
+                        + UUID.randomUUID()))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        long startedAt = System.nanoTime();
+        Process process = new ProcessBuilder(command(keycloakStub, port))
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            while (System.nanoTime() - startedAt < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    fail("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - startedAt) / 1_000_000;
+                    }
+                } catch (IOException notListeningYet) {
+                    // Keep polling until the server accepts connections
+                }
+                Thread.sleep(10);
+            }
+            return fail("No successful request within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> command(KeycloakStub keycloakStub, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (!JVM_ARGS.isBlank()) {
+            command.addAll(Arrays.asList(JVM_ARGS.trim().split("\\s+")));
+        }
+        command.add("-Dspring.devtools.restart.enabled=false");
+        if (JAR.isBlank()) {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+                    BackendResourcesApplication.class.getName()));
+        } else {
+            command.addAll(List.of("-jar", JAR));
+        }
+        command.add("--server.port=" + port);
+        command.add("--keycloak.auth-server-url=" + keycloakStub.authServerUrl());
+        command.add("--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + keycloakStub.issuer());
+        return command;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
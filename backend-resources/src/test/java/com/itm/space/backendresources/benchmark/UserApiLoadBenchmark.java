@@ -0,0 +1,114 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.support.KeycloakStub;
+import com.itm.space.backendresources.support.LoadGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Drives {@code GET /api/users/{id}} and {@code POST /api/users} over HTTP against the full
+ * application, with {@link KeycloakStub} standing in for Keycloak, and prints latency
+ * percentiles and error rates. Run with {@code mvn test -Pbenchmark}; tune with
+ * {@code -Dload.get-rate}, {@code -Dload.post-rate}, {@code -Dload.duration},
+ * {@code -Dload.distinct-users}, {@code -Dload.keycloak-latency}, {@code -Dload.keycloak-error-rate}
+ * and {@code -Dload.jwt-decoder}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserApiLoadBenchmark {
+
+    private static final int GET_RATE = Integer.getInteger("load.get-rate", 100);
+    private static final int POST_RATE = Integer.getInteger("load.post-rate", 20);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT10S"));
+    private static final int DISTINCT_USERS = Integer.getInteger("load.distinct-users", 1000);
+    private static final Duration KEYCLOAK_LATENCY =
+            Duration.parse(System.getProperty("load.keycloak-latency", "PT0.02S"));
+    private static final double KEYCLOAK_ERROR_RATE =
+            Double.parseDouble(System.getProperty("load.keycloak-error-rate", "0.01"));
+
+    private static KeycloakStub keycloakStub;
+    private static LoadGenerator loadGenerator;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void startLoadGenerator() {
+        loadGenerator = new LoadGenerator();
+    }
+
+    @AfterAll
+    static void stop() {
+        loadGenerator.close();
+        keycloakStub.close();
+    }
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = new KeycloakStub().latency(KEYCLOAK_LATENCY).errors(KEYCLOAK_ERROR_RATE, 503);
+        registry.add("keycloak.auth-server-url", keycloakStub::authServerUrl);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStub::issuer);
+        registry.add("security.jwt.decoder", () -> System.getProperty("load.jwt-decoder", "cached"));
+    }
+
+    @Test
+    void getUserById() throws Exception {
+        String token = keycloakStub.issueToken("moderator", List.of("MODERATOR"));
+        UUID[] users = new UUID[DISTINCT_USERS];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = UUID.randomUUID();
+        }
+        warmUp(() -> get(token, users));
+
+        System.out.println(loadGenerator.run("GET /api/users/{id}", GET_RATE, DURATION, () -> get(token, users)));
+    }
+
+    @Test
+    void createUser() throws Exception {
+        String token = keycloakStub.issueToken("moderator", List.of("MODERATOR"));
+        AtomicLong sequence = new AtomicLong();
+        warmUp(() -> post(token, sequence.incrementAndGet()));
+
+        System.out.println(loadGenerator.run("POST /api/users", POST_RATE, DURATION,
+                () -> post(token, sequence.incrementAndGet())));
+    }
+
+    private void warmUp(Supplier<HttpRequest> requests) throws InterruptedException {
+        loadGenerator.run("warm-up", 50, Duration.ofSeconds(2), requests);
+    }
+
+    private HttpRequest get(String token, UUID[] users) {
+        UUID id = users[ThreadLocalRandom.current().nextInt(users.length)];
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/" + id))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String token, long sequence) {
+        String body = """
+                {"username":"user%d","email":"user%d@example.com","password":"secret",\
+                "firstName":"John","lastName":"Doe"}""".formatted(sequence, sequence);
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.itm.space.backendresources.cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.api.response.UserResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaffeineUserCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<UUID, UserResponse> loader = id -> new UserResponse(
+            "John" + loads.incrementAndGet(), "Doe", "john.doe@example.com", List.of(), List.of());
+
+    private final CaffeineUserCache userCache = new CaffeineUserCache(
+            100, Duration.ofMinutes(10), Duration.ofMinutes(1), Runnable::run, ticker);
+
+    @Test
+    void get_LoadsOnceAndServesHits() {
+        UUID id = UUID.randomUUID();
+
+        UserResponse first = userCache.get(id, loader);
+        UserResponse second = userCache.get(id, loader);
+
+        assertEquals(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidate_ForcesReload() {
+        UUID id = UUID.randomUUID();
+        userCache.get(id, loader);
+
+        userCache.invalidate(id);
+        UserResponse reloaded = userCache.get(id, loader);
+
+        assertEquals("John2", reloaded.getFirstName());
+    }
+
+    @Test
+    void get_RefreshesStaleEntryAfterServingIt() {
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        CaffeineUserCache userCache = new CaffeineUserCache(
+                100, Duration.ofMinutes(10), Duration.ofMinutes(1), tasks::add, ticker);
+        UUID id = UUID.randomUUID();
+        userCache.get(id, loader);
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        UserResponse stale = userCache.get(id, loader);
+        tasks.forEach(Runnable::run);
+        UserResponse refreshed = userCache.get(id, loader);
+
+        assertEquals("John1", stale.getFirstName());
+        assertEquals("John2", refreshed.getFirstName());
+    }
+
+    @Test
+    void get_ExpiresEntryAfterWrite() {
+        UUID id = UUID.randomUUID();
+        userCache.get(id, loader);
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        assertEquals("John2", userCache.get(id, loader).getFirstName());
+    }
+
+    @Test
+    void get_LoadsOutsideTheCacheLocks() throws Exception {
+        UUID id = UUID.randomUUID();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserResponse> slowLoad = caller.submit(() -> userCache.get(id, key -> {
+                loading.countDown();
+                await(release);
+                return loader.apply(key);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                assertNull(userCache.getIfPresent(id));
+                userCache.invalidate(id);
+                userCache.put(UUID.randomUUID(), loader.apply(id));
+            });
+            release.countDown();
+
+            assertEquals("John2", slowLoad.get(5, TimeUnit.SECONDS).getFirstName());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_FailedLoadIsNotCached() {
+        UUID id = UUID.randomUUID();
+
+        assertThrows(IllegalStateException.class, () -> userCache.get(id, key -> {
+            throw new IllegalStateException("Keycloak down");
+        }));
+
+        assertEquals("John1", userCache.get(id, loader).getFirstName());
+    }
+
+    @Test
+    void bindTo_ExposesHitAndMissCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userCache.bindTo(registry);
+        UUID id = UUID.randomUUID();
+
+        userCache.get(id, loader);
+        userCache.get(id, loader);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.itm.space.backendresources.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AotBuildModesTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("keycloak.client.mode", "blocking");
+
+    @Test
+    void verify_SameModesAsTheBuild_Starts() {
+        assertDoesNotThrow(() -> AotBuildModes.verify(environment,
+                "keycloak.client.mode", "blocking", "user-replica.enabled", null));
+    }
+
+    @Test
+    void verify_ModeChangedSinceTheBuild_FailsTheStart() {
+        environment.setProperty("user-replica.enabled", "true");
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> AotBuildModes.verify(environment,
+                "keycloak.client.mode", "reactive", "user-replica.enabled", null));
+
+        assertTrue(ex.getMessage().contains("keycloak.client.mode=blocking (built with reactive)"));
+        assertTrue(ex.getMessage().contains("user-replica.enabled=true (built with null)"));
+    }
+}
@@ -2,28 +2,50 @@ package com.itm.space.backendresources.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.itm.space.backendresources.BackendResourcesApplication;
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.service.UserService;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest(classes = BackendResourcesApplication.class)
+@SpringBootTest(classes = BackendResourcesApplication.class, properties = {
+        "spring.mvc.async.request-timeout=500ms",
+        "keycloak.listing.stream-timeout=10s"})
 @AutoConfigureMockMvc
 class UserControllerTest {
 
@@ -33,6 +55,9 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
@@ -49,6 +74,95 @@ class UserControllerTest {
         verify(userService, times(1)).createUser(any(UserRequest.class));
     }
 
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_IdempotencyKey_RepeatOfClientErrorIsReplayed() throws Exception {
+        UserRequest userRequest = new UserRequest(
+                "taken", "taken@example.com", "password", "Test", "User");
+        String key = UUID.randomUUID().toString();
+        when(userService.createUser(any(UserRequest.class)))
+                .thenThrow(new BackendResourcesException("User exists with same username", HttpStatus.CONFLICT));
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().string("User exists with same username"));
+
+        verify(userService, times(1)).createUser(any(UserRequest.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_IdempotencyKey_RepeatIsReplayed() throws Exception {
+        UserRequest userRequest = new UserRequest(
+                "testuser", "test@example.com", "password", "Test", "User");
+        String key = UUID.randomUUID().toString();
+        when(userService.createUser(any(UserRequest.class))).thenReturn("created-id");
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        verify(userService, times(1)).createUser(any(UserRequest.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_IdempotencyKey_ReusedForOtherRequest() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequest(
+                                "testuser", "test@example.com", "password", "Test", "User"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequest(
+                                "otheruser", "other@example.com", "password", "Other", "User"))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_IdempotencyKey_ReusedForRequestWithSameHashCode() throws Exception {
+        String key = UUID.randomUUID().toString();
+        UserRequest first = new UserRequest("Aa", "test@example.com", "password", "Test", "User");
+        UserRequest colliding = new UserRequest("BB", "test@example.com", "password", "Test", "User");
+        assertEquals(first.hashCode(), colliding.hashCode());
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(colliding)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     @WithMockUser(roles = "MODERATOR")
     void getUserById_Success() throws Exception {
@@ -56,9 +170,12 @@ class UserControllerTest {
         UserResponse mockResponse = new UserResponse(
                 "Test", "User", "test@example.com", List.of("ROLE_USER"), List.of("GROUP_TEST"));
 
-        when(userService.getUserById(userId)).thenReturn(mockResponse);
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(get("/api/users/{id}", userId))
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.firstName").value("Test"))
                 .andExpect(jsonPath("$.lastName").value("User"))
@@ -104,4 +221,252 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.firstName").exists())
                 .andExpect(jsonPath("$.lastName").exists());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createBatch_Ndjson_Success() throws Exception {
+        UserRequest first = new UserRequest("first", "first@example.com", "password", "First", "User");
+        UserRequest second = new UserRequest("second", "second@example.com", "password", "Second", "User");
+        String body = objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second) + "\n";
+
+        when(userService.createUsers(any())).thenAnswer(invocation -> {
+            Iterator<UserRequest> requests = invocation.getArgument(0);
+            assertEquals("first", requests.next().getUsername());
+            assertEquals("second", requests.next().getUsername());
+            return Map.of(0, UserCreationResult.created("id-1"),
+                    1, UserCreationResult.failed(409, "Conflict"));
+        });
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.0.status").value(201))
+                .andExpect(jsonPath("$.0.id").value("id-1"))
+                .andExpect(jsonPath("$.1.status").value(409))
+                .andExpect(jsonPath("$.1.error").value("Conflict"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createBatch_JsonArray_Success() throws Exception {
+        List<UserRequest> body = List.of(
+                new UserRequest("first", "first@example.com", "password", "First", "User"));
+
+        when(userService.createUsers(any())).thenReturn(Map.of(0, UserCreationResult.created("id-1")));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.0.id").value("id-1"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUsersByIds_Success() throws Exception {
+        UUID foundId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        UserResponse user = new UserResponse(
+                "Test", "User", "test@example.com", List.of("ROLE_USER"), List.of("GROUP_TEST"));
+
+        when(userService.getUsersByIds(List.of(foundId, missingId)))
+                .thenReturn(new UsersResponse(Map.of(foundId, user), Map.of(missingId, "HTTP 404 Not Found")));
+
+        mockMvc.perform(get("/api/users").param("ids", foundId + "," + missingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users['" + foundId + "'].firstName").value("Test"))
+                .andExpect(jsonPath("$.misses['" + missingId + "']").value("HTTP 404 Not Found"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_WithInclude_OmitsUnrequestedDetails() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserResponse mockResponse = new UserResponse(
+                "Test", "User", "test@example.com", List.of("ROLE_USER"), null);
+
+        when(userService.getUserByIdAsync(userId, Set.of(UserDetail.ROLES)))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId).param("include", "roles"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Test"))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"))
+                .andExpect(jsonPath("$.groups").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_AsyncFailure_MapsBackendResourcesException() throws Exception {
+        UUID userId = UUID.randomUUID();
+
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.failedFuture(
+                new BackendResourcesException("HTTP 404 Not Found", HttpStatus.INTERNAL_SERVER_ERROR)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().string("HTTP 404 Not Found"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_Failure_CountsBackendResourcesExceptionStatus() throws Exception {
+        UUID userId = UUID.randomUUID();
+        double before = meterRegistry.counter("backend.resources.exceptions", "status", "404").count();
+
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.failedFuture(
+                new BackendResourcesException("User not found", HttpStatus.NOT_FOUND)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+
+        assertEquals(before + 1, meterRegistry.counter("backend.resources.exceptions", "status", "404").count());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_EmitsValidators() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserResponse mockResponse = new UserResponse(
+                "Test", "User", "test@example.com", List.of("ROLE_USER"), List.of("GROUP_TEST"));
+        mockResponse.setRetrievedAt(Instant.parse("2023-01-01T10:00:00Z"));
+
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ConditionalResponses.eTag(mockResponse)))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Sun, 01 Jan 2023 10:00:00 GMT"))
+                .andExpect(jsonPath("$.retrievedAt").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserResponse mockResponse = new UserResponse(
+                "Test", "User", "test@example.com", List.of("ROLE_USER"), List.of("GROUP_TEST"));
+
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + ConditionalResponses.eTag(mockResponse)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ConditionalResponses.eTag(mockResponse)))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getUserById_StaleIfNoneMatch_ReturnsBody() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserResponse mockResponse = new UserResponse(
+                "Test", "User", "test@example.com", List.of("ROLE_USER"), List.of("GROUP_TEST"));
+
+        when(userService.getUserByIdAsync(userId)).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName").value("Test"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_OpenCircuit_ReturnsServiceUnavailable() throws Exception {
+        UserRequest userRequest = new UserRequest(
+                "testuser", "test@example.com", "password", "Test", "User");
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("keycloak");
+        circuitBreaker.transitionToOpenState();
+
+        doThrow(CallNotPermittedException.createCallNotPermittedException(circuitBreaker))
+                .when(userService).createUser(any(UserRequest.class));
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void searchUsers_ReturnsPage() throws Exception {
+        UserResponse user = new UserResponse("Test", "User", "test@example.com", null, null);
+
+        when(userService.searchUsers("test", 0, 20)).thenReturn(List.of(user));
+
+        mockMvc.perform(get("/api/users").param("search", "test"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].email").value("test@example.com"))
+                .andExpect(jsonPath("$[0].roles").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void streamUsers_WritesNdjsonPerPage() throws Exception {
+        UserResponse first = new UserResponse("First", "User", "first@example.com", null, null);
+        UserResponse second = new UserResponse("Second", "User", "second@example.com", null, null);
+        CountDownLatch requestReturned = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            Consumer<List<UserResponse>> pageConsumer = invocation.getArgument(1);
+            requestReturned.await();
+            pageConsumer.accept(List.of(first));
+            pageConsumer.accept(List.of(second));
+            return null;
+        }).when(userService).streamUsers(eq(null), any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        requestReturned.countDown();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(first) + "\n"
+                        + objectMapper.writeValueAsString(second)));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void streamUsers_OutlivesDefaultAsyncTimeout() throws Exception {
+        UserResponse user = new UserResponse("Slow", "User", "slow@example.com", null, null);
+
+        doAnswer(invocation -> {
+            Consumer<List<UserResponse>> pageConsumer = invocation.getArgument(1);
+            Thread.sleep(1000);
+            pageConsumer.accept(List.of(user));
+            return null;
+        }).when(userService).streamUsers(eq("slow"), any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users").param("search", "slow")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(10_000, mvcResult.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(objectMapper.writeValueAsString(user)));
+    }
+}
@@ -0,0 +1,128 @@
+package com.itm.space.backendresources.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.BackendResourcesApplication;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendResourcesApplication.class, properties = "user-creation.async.enabled=true")
+@AutoConfigureMockMvc
+class UserCreationAsyncControllerTest {
+
+    @TempDir
+    private static Path outboxDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void outbox(DynamicPropertyRegistry registry) {
+        registry.add("user-creation.async.directory", outboxDirectory::toString);
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    @SuppressWarnings("unchecked")
+    void createUser_AcceptedAndCreatedInBackground() throws Exception {
+        when(userService.createUsers(any())).thenAnswer(invocation -> {
+            Iterator<UserRequest> requests = invocation.getArgument(0, Iterator.class);
+            Map<Integer, UserCreationResult> results = new TreeMap<>();
+            for (int i = 0; requests.hasNext(); i++) {
+                results.put(i, UserCreationResult.created("id-" + requests.next().getUsername()));
+            }
+            return results;
+        });
+        UserRequest userRequest = new UserRequest(
+                "testuser", "test@example.com", "password", "Test", "User");
+
+        String body = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(body).get("id").asText();
+
+        JsonNode job = null;
+        for (int i = 0; i < 100; i++) {
+            job = objectMapper.readTree(mockMvc.perform(get("/api/users/jobs/{id}", id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            if ("SUCCEEDED".equals(job.get("status").asText())) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+
+        assertEquals("SUCCEEDED", job.get("status").asText());
+        assertEquals("id-testuser", job.get("userId").asText());
+        verify(userService, never()).createUser(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_InvalidRequestIsNotAccepted() throws Exception {
+        UserRequest invalidRequest = new UserRequest("a", "invalid-email", "123", "", "");
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalidRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void getCreationJob_Unknown() throws Exception {
+        mockMvc.perform(get("/api/users/jobs/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createUser_LocationPointsAtJob() throws Exception {
+        when(userService.createUsers(any())).thenReturn(Map.of());
+        UserRequest userRequest = new UserRequest(
+                "otheruser", "other@example.com", "password", "Other", "User");
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", org.hamcrest.Matchers.startsWith("/api/users/jobs/")));
+    }
+}
@@ -0,0 +1,140 @@
+package com.itm.space.backendresources.idempotency;
+
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private static final byte[] REQUEST = IdempotencyStore.fingerprint("{\"username\":\"john\"}".getBytes());
+    private static final byte[] OTHER_REQUEST = IdempotencyStore.fingerprint("{\"username\":\"jane\"}".getBytes());
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final IdempotencyStore store =
+            new IdempotencyStore(100, Duration.ofMinutes(10), Duration.ofSeconds(5), nanos::get);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void repeatGetsTheStoredResult() {
+        IdempotencyStore.Outcome<String> first = store.execute("key", REQUEST, () -> "id-" + calls.incrementAndGet());
+        IdempotencyStore.Outcome<String> repeat = store.execute("key", REQUEST, () -> "id-" + calls.incrementAndGet());
+
+        assertFalse(first.replayed());
+        assertTrue(repeat.replayed());
+        assertEquals("id-1", repeat.value());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void concurrentRepeatWaitsForTheRunningRequest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<IdempotencyStore.Outcome<String>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("key", REQUEST, () -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "id-1";
+                }), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<IdempotencyStore.Outcome<String>> repeat =
+                CompletableFuture.supplyAsync(() -> store.execute("key", REQUEST, () -> "id-" + calls.incrementAndGet()));
+        release.countDown();
+
+        assertEquals("id-1", first.get(5, TimeUnit.SECONDS).value());
+        assertEquals("id-1", repeat.get(5, TimeUnit.SECONDS).value());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void clientErrorIsStored() {
+        BackendResourcesException conflict = new BackendResourcesException("Conflict", HttpStatus.CONFLICT);
+
+        assertThrows(BackendResourcesException.class, () -> store.execute("key", REQUEST, () -> {
+            calls.incrementAndGet();
+            throw conflict;
+        }));
+        ReplayedException replayed = assertThrows(ReplayedException.class,
+                () -> store.execute("key", REQUEST, calls::incrementAndGet));
+
+        assertEquals(HttpStatus.CONFLICT, replayed.getHttpStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void serverErrorIsNotStored() {
+        assertThrows(BackendResourcesException.class, () -> store.execute("key", REQUEST, () -> {
+            calls.incrementAndGet();
+            throw new BackendResourcesException("Bad Gateway", HttpStatus.BAD_GATEWAY);
+        }));
+
+        IdempotencyStore.Outcome<Integer> retry = store.execute("key", REQUEST, calls::incrementAndGet);
+
+        assertFalse(retry.replayed());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void errorIsNotStoredAndReleasesTheKey() {
+        assertThrows(StackOverflowError.class, () -> store.execute("key", REQUEST, () -> {
+            calls.incrementAndGet();
+            throw new StackOverflowError();
+        }));
+
+        IdempotencyStore.Outcome<Integer> retry = store.execute("key", REQUEST, calls::incrementAndGet);
+
+        assertFalse(retry.replayed());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() {
+        store.execute("key", REQUEST, () -> "id-1");
+
+        BackendResourcesException ex = assertThrows(BackendResourcesException.class,
+                () -> store.execute("key", OTHER_REQUEST, () -> "id-2"));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getHttpStatus());
+    }
+
+    @Test
+    void storedResultExpires() {
+        store.execute("key", REQUEST, calls::incrementAndGet);
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        IdempotencyStore.Outcome<Integer> later = store.execute("key", REQUEST, calls::incrementAndGet);
+
+        assertFalse(later.replayed());
+        assertEquals(2, calls.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
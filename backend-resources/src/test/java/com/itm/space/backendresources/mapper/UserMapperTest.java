@@ -10,6 +10,7 @@ import org.mapstruct.factory.Mappers;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class UserMapperTest {
 
@@ -45,4 +46,16 @@ class UserMapperTest {
         assertEquals(1, response.getGroups().size());
         assertEquals("test-group", response.getGroups().get(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void userRepresentationToUserResponse_WithoutRolesAndGroups() {
+        UserRepresentation userRepresentation = new UserRepresentation();
+        userRepresentation.setFirstName("John");
+
+        UserResponse response = userMapper.userRepresentationToUserResponse(userRepresentation, null, null);
+
+        assertEquals("John", response.getFirstName());
+        assertNull(response.getRoles());
+        assertNull(response.getGroups());
+    }
+}
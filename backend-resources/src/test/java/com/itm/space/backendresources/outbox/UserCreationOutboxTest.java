@@ -0,0 +1,166 @@
+package com.itm.space.backendresources.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itm.space.backendresources.api.request.UserRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCreationOutboxTest {
+
+    private static final Duration NO_WAIT = Duration.ofMillis(1);
+
+    @TempDir
+    private Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+    private UserCreationOutbox outbox;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        outbox.close();
+    }
+
+    @Test
+    void acceptedJobSurvivesRestart() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.close();
+
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+
+        assertEquals(UserCreationJob.Status.PENDING, outbox.get(job.id()).orElseThrow().status());
+        List<UserCreationJob> due = outbox.take(10, NO_WAIT);
+        assertEquals(1, due.size());
+        assertEquals("alice", due.get(0).request().getUsername());
+    }
+
+    @Test
+    void runningJobIsRetriedAfterRestart() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.take(10, NO_WAIT);
+        outbox.update(List.of(job.running(now)));
+        outbox.close();
+
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+
+        List<UserCreationJob> due = outbox.take(10, NO_WAIT);
+        assertEquals(1, due.size());
+        assertEquals(UserCreationJob.Status.RUNNING, due.get(0).status());
+        assertEquals(1, due.get(0).attempts());
+    }
+
+    @Test
+    void retriedJobBecomesDueByTheOutboxClock() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.take(10, NO_WAIT);
+        outbox.update(List.of(job.running(now).retry("Unavailable", now.plus(Duration.ofMinutes(1)), now)));
+
+        assertTrue(outbox.take(10, NO_WAIT).isEmpty());
+        outbox.close();
+
+        outbox = open(Clock.fixed(now.plus(Duration.ofMinutes(2)), ZoneOffset.UTC));
+
+        assertEquals(1, outbox.take(10, NO_WAIT).size());
+    }
+
+    @Test
+    void takeReturnsAtMostOneBatch() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        for (int i = 0; i < 5; i++) {
+            outbox.enqueue(request("user" + i));
+        }
+
+        assertEquals(3, outbox.take(3, NO_WAIT).size());
+        assertEquals(2, outbox.take(3, NO_WAIT).size());
+        assertTrue(outbox.take(3, NO_WAIT).isEmpty());
+    }
+
+    @Test
+    void finishedJobsAreNotTakenAndForgetThePassword() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.take(10, NO_WAIT);
+        outbox.update(List.of(job.running(now).succeeded("id-1", now)));
+        outbox.close();
+
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+
+        UserCreationJob finished = outbox.get(job.id()).orElseThrow();
+        assertEquals("id-1", finished.userId());
+        assertNull(finished.request());
+        assertTrue(outbox.take(10, NO_WAIT).isEmpty());
+        assertFalse(journal().contains("secret"));
+    }
+
+    @Test
+    void finishedJobsExpireAfterRetention() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.update(List.of(job.running(now).failed("Conflict", now)));
+        outbox.close();
+
+        outbox = open(Clock.fixed(now.plus(Duration.ofDays(2)), ZoneOffset.UTC));
+
+        assertTrue(outbox.get(job.id()).isEmpty());
+        assertTrue(journal().isBlank());
+    }
+
+    @Test
+    void recordCutShortByACrashIsSkipped() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        outbox.close();
+        Files.writeString(directory.resolve(UserCreationOutbox.JOURNAL), "{\"id\":\"", StandardOpenOption.APPEND);
+
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+
+        assertTrue(outbox.get(job.id()).isPresent());
+        assertEquals(1, outbox.pending());
+    }
+
+    @Test
+    void journalIsReadableByItsOwnerOnly() throws Exception {
+        outbox = open(Clock.fixed(now, ZoneOffset.UTC));
+        outbox.enqueue(request("alice"));
+
+        assertEquals("rw-------", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(directory.resolve(UserCreationOutbox.JOURNAL))));
+    }
+
+    private UserCreationOutbox open(Clock clock) throws Exception {
+        UserCreationOutbox opened = new UserCreationOutbox(directory, objectMapper, Duration.ofDays(1), clock);
+        opened.open();
+        return opened;
+    }
+
+    private String journal() throws Exception {
+        return Files.readString(directory.resolve(UserCreationOutbox.JOURNAL), StandardCharsets.UTF_8);
+    }
+
+    private static UserRequest request(String username) {
+        return new UserRequest(username, username + "@example.com", "secret", "Test", "User");
+    }
+}
@@ -0,0 +1,125 @@
+package com.itm.space.backendresources.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCreationWorkerTest {
+
+    private static final Duration NO_WAIT = Duration.ofMillis(1);
+
+    @TempDir
+    private Path directory;
+
+    private final UserService userService = mock(UserService.class);
+    private UserCreationOutbox outbox;
+    private UserCreationWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        outbox = new UserCreationOutbox(directory, objectMapper, Duration.ofDays(1), Clock.systemUTC());
+        outbox.open();
+        worker = new UserCreationWorker(outbox, userService, 1, 10, 2, Duration.ZERO, Clock.systemUTC());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        outbox.close();
+    }
+
+    @Test
+    void batchIsCreatedWithOneCall() throws Exception {
+        UserCreationJob alice = outbox.enqueue(request("alice"));
+        UserCreationJob bob = outbox.enqueue(request("bob"));
+        answer(UserCreationResult.created("id-alice"), UserCreationResult.created("id-bob"));
+
+        worker.process(outbox.take(10, NO_WAIT));
+
+        assertEquals("id-alice", outbox.get(alice.id()).orElseThrow().userId());
+        assertEquals(UserCreationJob.Status.SUCCEEDED, outbox.get(bob.id()).orElseThrow().status());
+    }
+
+    @Test
+    void serverErrorsAreRetriedUpToMaxAttempts() throws Exception {
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        answer(UserCreationResult.failed(503, "Service Unavailable"));
+
+        worker.process(outbox.take(10, NO_WAIT));
+        assertEquals(UserCreationJob.Status.PENDING, outbox.get(job.id()).orElseThrow().status());
+
+        worker.process(outbox.take(10, NO_WAIT));
+        UserCreationJob failed = outbox.get(job.id()).orElseThrow();
+        assertEquals(UserCreationJob.Status.FAILED, failed.status());
+        assertEquals(2, failed.attempts());
+        assertEquals("Service Unavailable", failed.error());
+        assertTrue(outbox.take(10, NO_WAIT).isEmpty());
+    }
+
+    @Test
+    void conflictOnReplayResolvesTheExistingUser() throws Exception {
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        answer(UserCreationResult.failed(500, "Read timed out"));
+        worker.process(outbox.take(10, NO_WAIT));
+        answer(UserCreationResult.failed(409, "Conflict"));
+        when(userService.findUserId("alice")).thenReturn("id-alice");
+
+        worker.process(outbox.take(10, NO_WAIT));
+
+        UserCreationJob succeeded = outbox.get(job.id()).orElseThrow();
+        assertEquals(UserCreationJob.Status.SUCCEEDED, succeeded.status());
+        assertEquals("id-alice", succeeded.userId());
+    }
+
+    @Test
+    void conflictOnFirstAttemptFails() throws Exception {
+        UserCreationJob job = outbox.enqueue(request("alice"));
+        answer(UserCreationResult.failed(409, "Conflict"));
+
+        worker.process(outbox.take(10, NO_WAIT));
+
+        assertEquals(UserCreationJob.Status.FAILED, outbox.get(job.id()).orElseThrow().status());
+        verify(userService, never()).findUserId(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answer(UserCreationResult... results) {
+        doAnswer(invocation -> {
+            Iterator<UserRequest> requests = invocation.getArgument(0, Iterator.class);
+            Map<Integer, UserCreationResult> created = new TreeMap<>();
+            for (int i = 0; requests.hasNext(); i++) {
+                requests.next();
+                created.put(i, results[i]);
+            }
+            return created;
+        }).when(userService).createUsers(any());
+    }
+
+    private static UserRequest request(String username) {
+        return new UserRequest(username, username + "@example.com", "secret", "Test", "User");
+    }
+}
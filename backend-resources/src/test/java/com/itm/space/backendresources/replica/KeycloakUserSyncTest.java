@@ -0,0 +1,127 @@
+package com.itm.space.backendresources.replica;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mapstruct.factory.Mappers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeycloakUserSyncTest {
+
+    private static final String REALM = "ITM";
+
+    private final Keycloak keycloak = mock(Keycloak.class, RETURNS_DEEP_STUBS);
+    private final RealmResource realmResource = keycloak.realm(REALM);
+    private final KeycloakUserSync keycloakUserSync =
+            new KeycloakUserSync(keycloak, REALM, Mappers.getMapper(UserMapper.class), 2);
+
+    @Test
+    void fetchAll_ResolvesRolesAndNestedGroupsFromMemberListings() {
+        UserRepresentation alice = user("Alice");
+        UserRepresentation bob = user("Bob");
+        UserRepresentation carol = user("Carol");
+        RoleRepresentation moderator = new RoleRepresentation("MODERATOR", null, false);
+        GroupRepresentation staff = group("staff");
+        GroupRepresentation admins = group("admins");
+        staff.setSubGroups(List.of(admins));
+
+        when(realmResource.users().list(0, 2)).thenReturn(List.of(alice, bob));
+        when(realmResource.users().list(2, 2)).thenReturn(List.of(carol));
+        when(realmResource.roles().list()).thenReturn(List.of(moderator));
+        when(realmResource.roles().get("MODERATOR").getRoleUserMembers(0, 2)).thenReturn(Set.of(alice));
+        when(realmResource.groups().groups()).thenReturn(List.of(staff));
+        when(realmResource.groups().group(staff.getId()).members(0, 2, true)).thenReturn(List.of(alice, bob));
+        when(realmResource.groups().group(staff.getId()).members(2, 2, true)).thenReturn(List.of());
+        when(realmResource.groups().group(admins.getId()).members(0, 2, true)).thenReturn(List.of(alice));
+
+        Map<UUID, UserResponse> users = keycloakUserSync.fetchAll();
+
+        assertEquals(3, users.size());
+        UserResponse aliceResponse = users.get(UUID.fromString(alice.getId()));
+        assertEquals(List.of("MODERATOR"), aliceResponse.getRoles());
+        assertEquals(List.of("staff", "admins"), aliceResponse.getGroups());
+        UserResponse carolResponse = users.get(UUID.fromString(carol.getId()));
+        assertEquals(List.of(), carolResponse.getRoles());
+        assertEquals(List.of(), carolResponse.getGroups());
+    }
+
+    @Test
+    void fetchAll_UserWithoutRealmRoles_GetsEmptyRolesLikeLiveLookup() {
+        UserRepresentation alice = user("Alice");
+        when(realmResource.users().list(0, 2)).thenReturn(List.of(alice));
+        when(realmResource.roles().list()).thenReturn(List.of());
+        when(realmResource.groups().groups()).thenReturn(List.of());
+
+        UserResponse response = keycloakUserSync.fetchAll().get(UUID.fromString(alice.getId()));
+
+        assertEquals(new UserResponse("Alice", null, null, List.of(), List.of()), response);
+    }
+
+    @Test
+    void changesSince_CollectsUsersFromEventsNewerThanWatermark() {
+        UUID renamed = UUID.randomUUID();
+        UUID regrouped = UUID.randomUUID();
+        when(realmResource.getAdminEvents(any(), any(), any(), any(), any(), any(), any(), any(), eq(0), eq(2)))
+                .thenReturn(List.of(event(300, "USER", "UPDATE", "users/" + renamed),
+                        event(200, "GROUP_MEMBERSHIP", "CREATE", "users/" + regrouped + "/groups/g1")));
+        when(realmResource.getAdminEvents(any(), any(), any(), any(), any(), any(), any(), any(), eq(2), eq(2)))
+                .thenReturn(List.of(event(100, "USER", "UPDATE", "users/" + UUID.randomUUID())));
+
+        KeycloakUserSync.Changes changes = keycloakUserSync.changesSince(150);
+
+        assertEquals(Set.of(renamed, regrouped), changes.users());
+        assertFalse(changes.fullSyncRequired());
+        assertEquals(300, changes.latestEventTime());
+    }
+
+    @Test
+    void changesSince_RequestsFullSyncWhenGroupChanges() {
+        when(realmResource.getAdminEvents(any(), any(), any(), any(), any(), any(), any(), any(), eq(0), eq(2)))
+                .thenReturn(List.of(event(300, "GROUP", "UPDATE", "groups/g1")));
+
+        assertTrue(keycloakUserSync.changesSince(150).fullSyncRequired());
+    }
+
+    private static UserRepresentation user(String firstName) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(UUID.randomUUID().toString());
+        user.setFirstName(firstName);
+        return user;
+    }
+
+    private static GroupRepresentation group(String name) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setId(UUID.randomUUID().toString());
+        group.setName(name);
+        return group;
+    }
+
+    private static AdminEventRepresentation event(long time, String resourceType, String operationType,
+                                                  String resourcePath) {
+        AdminEventRepresentation event = new AdminEventRepresentation();
+        event.setTime(time);
+        event.setResourceType(resourceType);
+        event.setOperationType(operationType);
+        event.setResourcePath(resourcePath);
+        return event;
+    }
+}
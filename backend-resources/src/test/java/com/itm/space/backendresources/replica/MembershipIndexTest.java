@@ -0,0 +1,159 @@
+package com.itm.space.backendresources.replica;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MembershipIndexTest {
+
+    private final KeycloakUserSync keycloakUserSync = mock(KeycloakUserSync.class);
+    private final MembershipIndex membershipIndex = new MembershipIndex(keycloakUserSync, Duration.ofMinutes(2),
+            Duration.ofSeconds(30), Duration.ofHours(1), mock(ScheduledExecutorService.class),
+            Clock.fixed(Instant.parse("2023-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(keycloakUserSync.adminEventsEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void refresh_IndexesMembersByNameAndNamesByMember() {
+        loadMemberships();
+
+        membershipIndex.refresh();
+
+        assertTrue(membershipIndex.isReady());
+        assertEquals(Set.of(alice, bob), membershipIndex.roleMembers("USER"));
+        assertEquals(Set.of(alice), membershipIndex.groupMembers("Moderators"));
+        assertEquals(List.of("USER", "MODERATOR"), membershipIndex.roles(alice));
+        assertEquals(List.of("Moderators"), membershipIndex.groups(alice));
+        assertEquals(List.of(), membershipIndex.roles(carol));
+    }
+
+    @Test
+    void refresh_SharesOneListPerDistinctMembership() {
+        loadMemberships();
+        when(keycloakUserSync.changesSince(anyLong()))
+                .thenReturn(new KeycloakUserSync.Changes(Set.of(carol), false, 1L));
+        when(keycloakUserSync.fetchMemberships(carol))
+                .thenReturn(new KeycloakUserSync.UserMemberships(List.of(new String("USER")), List.of()));
+
+        membershipIndex.refresh();
+        membershipIndex.refresh();
+
+        assertSame(membershipIndex.roles(bob), membershipIndex.roles(carol));
+        assertSame(membershipIndex.roles(bob).get(0), membershipIndex.roles(carol).get(0));
+    }
+
+    @Test
+    void refresh_AppliesMembershipChangesFromEvents() {
+        loadMemberships();
+        membershipIndex.refresh();
+        when(keycloakUserSync.changesSince(anyLong()))
+                .thenReturn(new KeycloakUserSync.Changes(Set.of(alice, bob), false, 1L));
+        when(keycloakUserSync.fetchMemberships(alice))
+                .thenReturn(new KeycloakUserSync.UserMemberships(List.of("USER"), List.of()));
+        when(keycloakUserSync.fetchMemberships(bob)).thenReturn(null);
+
+        membershipIndex.refresh();
+
+        assertEquals(List.of("USER"), membershipIndex.roles(alice));
+        assertEquals(Set.of(alice), membershipIndex.roleMembers("USER"));
+        assertEquals(Set.of(), membershipIndex.roleMembers("MODERATOR"));
+        assertEquals(Set.of(), membershipIndex.groupMembers("Moderators"));
+        assertEquals(List.of(), membershipIndex.roles(bob));
+    }
+
+    @Test
+    void refresh_DropsListsNoUserHoldsAnyMore() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        membershipIndex.bindTo(meterRegistry);
+        loadMemberships();
+        membershipIndex.refresh();
+        when(keycloakUserSync.changesSince(anyLong()))
+                .thenReturn(new KeycloakUserSync.Changes(Set.of(alice, bob), false, 1L));
+        when(keycloakUserSync.fetchMemberships(alice))
+                .thenReturn(new KeycloakUserSync.UserMemberships(List.of("MODERATOR"), List.of()));
+        when(keycloakUserSync.fetchMemberships(bob))
+                .thenReturn(new KeycloakUserSync.UserMemberships(List.of("MODERATOR"), List.of()));
+
+        membershipIndex.refresh();
+
+        assertSame(membershipIndex.roles(alice), membershipIndex.roles(bob));
+        assertEquals(1.0, meterRegistry.get("user.memberships.distinct").gauge().value());
+    }
+
+    @Test
+    void refresh_WithoutAdminEvents_IsNotReadyOnceStale() {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-01-01T00:00:00Z"));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        MembershipIndex index = new MembershipIndex(keycloakUserSync, Duration.ofMinutes(2),
+                Duration.ofSeconds(30), Duration.ofHours(1), mock(ScheduledExecutorService.class), clock);
+        when(keycloakUserSync.adminEventsEnabled()).thenReturn(false);
+        loadMemberships();
+        index.refresh();
+
+        for (int i = 0; i < 5; i++) {
+            now.set(now.get().plus(Duration.ofSeconds(30)));
+            index.refresh();
+        }
+
+        assertFalse(index.isReady());
+        verify(keycloakUserSync, never()).changesSince(anyLong());
+    }
+
+    @Test
+    void disabled_IsNeverReady() {
+        assertFalse(MembershipIndex.disabled().isReady());
+    }
+
+    private void loadMemberships() {
+        Map<String, Set<UUID>> roleMembers = new LinkedHashMap<>();
+        roleMembers.put("USER", Set.of(alice, bob));
+        roleMembers.put("MODERATOR", Set.of(alice));
+        when(keycloakUserSync.fetchMemberships())
+                .thenReturn(new KeycloakUserSync.Memberships(roleMembers, Map.of("Moderators", Set.of(alice))));
+    }
+}
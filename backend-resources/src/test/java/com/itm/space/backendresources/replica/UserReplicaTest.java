@@ -0,0 +1,181 @@
+package com.itm.space.backendresources.replica;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserReplicaTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-01-01T00:00:00Z"));
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    };
+    private final KeycloakUserSync keycloakUserSync = mock(KeycloakUserSync.class);
+    private final UserReplica userReplica = new UserReplica(keycloakUserSync, Duration.ofMinutes(1),
+            Duration.ofSeconds(10), Duration.ofHours(1), mock(ScheduledExecutorService.class), clock);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<UUID, UserResponse> loader = id -> user("Loaded" + loads.incrementAndGet());
+
+    private final UUID id = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        userReplica.bindTo(meterRegistry);
+        when(keycloakUserSync.adminEventsEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void get_FallsThroughUntilFirstSync() {
+        UserResponse user = userReplica.get(id, loader);
+
+        assertEquals("Loaded1", user.getFirstName());
+        assertFalse(userReplica.isFresh());
+        assertEquals(1.0, lookups("stale"));
+    }
+
+    @Test
+    void get_ServesSyncedUsersWithoutLoading() {
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of(id, user("Synced")));
+
+        userReplica.sync();
+
+        assertTrue(userReplica.isFresh());
+        assertEquals("Synced", userReplica.get(id, loader).getFirstName());
+        assertEquals(0, loads.get());
+        assertEquals(1.0, lookups("hit"));
+    }
+
+    @Test
+    void get_MissFallsThroughAndKeepsResult() {
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of());
+        userReplica.sync();
+
+        userReplica.get(id, loader);
+        UserResponse second = userReplica.get(id, loader);
+
+        assertEquals("Loaded1", second.getFirstName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_BypassesReplicaOnceTooStale() {
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of(id, user("Synced")));
+        userReplica.sync();
+        when(keycloakUserSync.changesSince(anyLong())).thenThrow(new IllegalStateException("Keycloak unavailable"));
+        userReplica.sync();
+
+        now.set(now.get().plus(Duration.ofMinutes(2)));
+
+        assertFalse(userReplica.isFresh());
+        assertNull(userReplica.getIfPresent(id));
+        assertEquals(1.0, meterRegistry.get("user.replica.syncs")
+                .tag("type", "incremental").tag("outcome", "failure").functionCounter().count());
+    }
+
+    @Test
+    void sync_AppliesIncrementalChanges() {
+        UUID deleted = UUID.randomUUID();
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of(id, user("Synced"), deleted, user("Deleted")));
+        userReplica.sync();
+        when(keycloakUserSync.changesSince(anyLong()))
+                .thenReturn(new KeycloakUserSync.Changes(Set.of(id, deleted), false, 1L));
+        when(keycloakUserSync.fetchUser(id)).thenReturn(user("Renamed"));
+        when(keycloakUserSync.fetchUser(deleted)).thenReturn(null);
+
+        now.set(now.get().plus(Duration.ofSeconds(50)));
+        userReplica.sync();
+        now.set(now.get().plus(Duration.ofSeconds(50)));
+
+        assertTrue(userReplica.isFresh());
+        assertEquals("Renamed", userReplica.getIfPresent(id).getFirstName());
+        assertNull(userReplica.getIfPresent(deleted));
+        assertEquals(1, userReplica.size());
+    }
+
+    @Test
+    void sync_RunsFullSyncWhenEventsRequireIt() {
+        when(keycloakUserSync.fetchAll())
+                .thenReturn(Map.of(id, user("Synced")))
+                .thenReturn(Map.of(id, user("Resynced")));
+        userReplica.sync();
+        when(keycloakUserSync.changesSince(anyLong()))
+                .thenReturn(new KeycloakUserSync.Changes(Set.of(), true, 1L));
+
+        userReplica.sync();
+
+        assertEquals("Resynced", userReplica.getIfPresent(id).getFirstName());
+    }
+
+    @Test
+    void sync_WithoutAdminEvents_GoesStaleInsteadOfReportingEmptySyncs() {
+        when(keycloakUserSync.adminEventsEnabled()).thenReturn(false);
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of(id, user("Synced")));
+        userReplica.sync();
+
+        for (int i = 0; i < 12; i++) {
+            now.set(now.get().plus(Duration.ofSeconds(10)));
+            userReplica.sync();
+        }
+
+        assertFalse(userReplica.isFresh());
+        assertNull(userReplica.getIfPresent(id));
+        verify(keycloakUserSync, never()).changesSince(anyLong());
+    }
+
+    @Test
+    void invalidate_RemovesUser() {
+        when(keycloakUserSync.fetchAll()).thenReturn(Map.of(id, user("Synced")));
+        userReplica.sync();
+
+        userReplica.invalidate(id);
+
+        assertNull(userReplica.getIfPresent(id));
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("user.replica.lookups").tag("result", result).functionCounter().count();
+    }
+
+    private static UserResponse user(String firstName) {
+        return new UserResponse(firstName, "Doe", "john.doe@example.com", List.of("ROLE_USER"), List.of());
+    }
+}
@@ -0,0 +1,309 @@
+package com.itm.space.backendresources.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ServiceUnavailableException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeycloakResilienceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void openCircuitRejectsCallsWithoutReachingKeycloak() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.of("keycloak", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .recordException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(circuitBreaker, null, null, null, meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ServiceUnavailableException.class, () -> resilience.write(() -> {
+                calls.incrementAndGet();
+                throw new ServiceUnavailableException();
+            }));
+        }
+        CallNotPermittedException rejection = assertThrows(CallNotPermittedException.class,
+                () -> resilience.write(calls::incrementAndGet));
+
+        assertTrue(KeycloakResilience.isRejection(rejection));
+        assertEquals(4, calls.get());
+        assertEquals(1.0, rejections("circuit_open"));
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheCircuit() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.of("keycloak", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .recordException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(circuitBreaker, null, null, null, meterRegistry);
+
+        for (int i = 0; i < 8; i++) {
+            assertThrows(NotFoundException.class, () -> resilience.write(() -> {
+                throw new NotFoundException();
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void readsRetryUpstreamFailuresOnly() {
+        Retry retry = Retry.of("keycloak", RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryOnException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(null, null, retry, null, meterRegistry);
+
+        String value = resilience.read(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ServiceUnavailableException();
+            }
+            return "user";
+        });
+        assertEquals("user", value);
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(NotFoundException.class, () -> resilience.read(() -> {
+            calls.incrementAndGet();
+            throw new NotFoundException();
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void reactiveReadsRetryUpstreamFailuresOnly() {
+        Retry retry = Retry.of("keycloak", RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryOnException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(null, null, retry, null, meterRegistry);
+
+        String value = resilience.read(Mono.fromCallable(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw WebClientResponseException.create(503, "Service Unavailable", null, null, null);
+            }
+            return "user";
+        })).block();
+        assertEquals("user", value);
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        Mono<String> notFound = resilience.read(Mono.fromCallable(() -> {
+            calls.incrementAndGet();
+            throw WebClientResponseException.create(404, "Not Found", null, null, null);
+        }));
+        assertThrows(WebClientResponseException.NotFound.class, notFound::block);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void openCircuitRejectsReactiveCalls() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.of("keycloak", CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .recordException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(circuitBreaker, null, null, null, meterRegistry);
+        Mono<String> failing = Mono.fromCallable(() -> {
+            calls.incrementAndGet();
+            throw WebClientResponseException.create(HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null, null, null);
+        });
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(WebClientResponseException.class, resilience.write(failing)::block);
+        }
+        assertThrows(CallNotPermittedException.class, resilience.write(failing)::block);
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, rejections("circuit_open"));
+    }
+
+    @Test
+    void writesAreNotRetried() {
+        Retry retry = Retry.of("keycloak", RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryOnException(KeycloakResilience::isUpstreamFailure)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(null, null, retry, null, meterRegistry);
+
+        assertThrows(ServiceUnavailableException.class, () -> resilience.write(() -> {
+            calls.incrementAndGet();
+            throw new ServiceUnavailableException();
+        }));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void fullBulkheadRejectsImmediately() throws Exception {
+        Bulkhead bulkhead = Bulkhead.of("keycloak", BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        KeycloakResilience resilience = new KeycloakResilience(null, bulkhead, null, null, meterRegistry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> resilience.write(() -> {
+            entered.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertThrows(BulkheadFullException.class, () -> resilience.write(calls::incrementAndGet));
+
+        release.countDown();
+        assertEquals(0, calls.get());
+        assertEquals(1.0, rejections("bulkhead_full"));
+    }
+
+    @Test
+    void slowReadIsHedgedAndFirstAnswerWins() {
+        LatencyWindow latencies = new LatencyWindow(64, 0);
+        for (int i = 0; i < 64; i++) {
+            latencies.record(Duration.ofMillis(1).toNanos());
+        }
+        KeycloakResilience.Hedging hedging =
+                new KeycloakResilience.Hedging(0.95, Duration.ofMillis(10), Duration.ofSeconds(5), executor, latencies);
+        KeycloakResilience resilience = new KeycloakResilience(null, null, null, hedging, meterRegistry);
+        CountDownLatch stuck = new CountDownLatch(1);
+
+        String value = resilience.hedgedRead(() -> {
+            if (calls.incrementAndGet() == 1) {
+                await(stuck);
+                return "slow";
+            }
+            return "hedged";
+        });
+        stuck.countDown();
+
+        assertEquals("hedged", value);
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.get("keycloak.client.hedges").counter().count());
+    }
+
+    @Test
+    void readsAreNotHedgedBeforeEnoughLatenciesAreKnown() {
+        KeycloakResilience.Hedging hedging = new KeycloakResilience.Hedging(0.95, Duration.ofMillis(1),
+                Duration.ofSeconds(5), executor, new LatencyWindow(64, 0));
+        KeycloakResilience resilience = new KeycloakResilience(null, null, null, hedging, meterRegistry);
+
+        String value = resilience.hedgedRead(() -> {
+            calls.incrementAndGet();
+            sleep(20);
+            return "user";
+        });
+
+        assertEquals("user", value);
+        assertEquals(1, calls.get());
+        assertEquals(0.0, meterRegistry.get("keycloak.client.hedges").counter().count());
+    }
+
+    @Test
+    void hedgedReadGivesUpAfterTheTimeout() {
+        KeycloakResilience.Hedging hedging = new KeycloakResilience.Hedging(0.95, Duration.ofMillis(10),
+                Duration.ofMillis(200), executor, knownLatencies());
+        KeycloakResilience resilience = new KeycloakResilience(null, null, null, hedging, meterRegistry);
+        CountDownLatch stuck = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> resilience.hedgedRead(() -> {
+            calls.incrementAndGet();
+            await(stuck);
+            return "slow";
+        }));
+        stuck.countDown();
+
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void saturatedHedgingExecutorReadsOnTheCaller() {
+        Executor saturated = command -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        KeycloakResilience.Hedging hedging = new KeycloakResilience.Hedging(0.95, Duration.ofMillis(10),
+                Duration.ofSeconds(5), saturated, knownLatencies());
+        KeycloakResilience resilience = new KeycloakResilience(null, null, null, hedging, meterRegistry);
+
+        String value = resilience.hedgedRead(() -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), value);
+        assertEquals(0.0, meterRegistry.get("keycloak.client.hedges").counter().count());
+    }
+
+    private static LatencyWindow knownLatencies() {
+        LatencyWindow latencies = new LatencyWindow(64, 0);
+        for (int i = 0; i < 64; i++) {
+            latencies.record(Duration.ofMillis(1).toNanos());
+        }
+        return latencies;
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("keycloak.client.rejections").tag("reason", reason).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.itm.space.backendresources.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingJwkSourceTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-01-01T00:00:00Z"));
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    };
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicReference<JWKSet> published = new AtomicReference<>();
+    private final CachingJwkSource jwkSource = new CachingJwkSource(() -> {
+        loads.incrementAndGet();
+        JWKSet keys = published.get();
+        if (keys == null) {
+            throw new IllegalStateException("Keycloak unavailable");
+        }
+        return keys;
+    }, Duration.ofMinutes(5), Duration.ofSeconds(30), executor, clock);
+
+    @AfterEach
+    void tearDown() {
+        jwkSource.close();
+    }
+
+    @Test
+    void start_PrefetchesKeys() throws Exception {
+        RSAKey key = rsaKey("key-1");
+        published.set(new JWKSet(key));
+
+        jwkSource.start();
+
+        assertEquals(List.of(key.toPublicJWK()), publicKeys(select("key-1")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_UnknownKeyIdRefreshesInBackground() throws Exception {
+        published.set(new JWKSet(rsaKey("key-1")));
+        jwkSource.start().join();
+        RSAKey rotated = rsaKey("key-2");
+        published.set(new JWKSet(rotated));
+        now.set(now.get().plusSeconds(60));
+
+        assertTrue(select("key-2").isEmpty());
+        jwkSource.refreshAsync().join();
+
+        assertEquals(List.of(rotated.toPublicJWK()), publicKeys(select("key-2")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_UnknownKeyIdRefreshesAtMostOncePerGap() throws Exception {
+        published.set(new JWKSet(rsaKey("key-1")));
+        jwkSource.start().join();
+
+        select("forged");
+        jwkSource.refreshAsync().join();
+        select("forged");
+        jwkSource.refreshAsync().join();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void refresh_FailureKeepsCachedKeys() throws Exception {
+        published.set(new JWKSet(rsaKey("key-1")));
+        jwkSource.start().join();
+        published.set(null);
+        now.set(now.get().plusSeconds(60));
+
+        jwkSource.refreshAsync().join();
+
+        assertEquals(1, select("key-1").size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void start_ToleratesUnavailableKeys() throws Exception {
+        jwkSource.start().join();
+        published.set(new JWKSet(rsaKey("key-1")));
+        now.set(now.get().plusSeconds(60));
+
+        select("key-1");
+        jwkSource.refreshAsync().join();
+
+        assertEquals(1, select("key-1").size());
+    }
+
+    private List<JWK> select(String keyId) {
+        return jwkSource.get(new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build()), null);
+    }
+
+    private static List<JWK> publicKeys(List<JWK> keys) {
+        return keys.stream().map(JWK::toPublicJWK).toList();
+    }
+
+    private static RSAKey rsaKey(String keyId) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(keyId).generate();
+    }
+}
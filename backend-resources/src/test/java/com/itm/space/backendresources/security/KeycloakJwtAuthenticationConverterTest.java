@@ -0,0 +1,99 @@
+package com.itm.space.backendresources.security;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeycloakJwtAuthenticationConverterTest {
+
+    private static final Instant NOW = Instant.parse("2023-01-01T00:00:00Z");
+
+    private final KeycloakJwtAuthenticationConverter converter = new KeycloakJwtAuthenticationConverter(
+            100, 100, Clock.fixed(NOW, ZoneOffset.UTC), Ticker.systemTicker());
+
+    @Test
+    void convert_MapsRealmRolesToAuthorities() {
+        AbstractAuthenticationToken token = converter.convert(jwt("token-1", NOW.plusSeconds(60),
+                claims -> claims.put("realm_access", Map.of("roles", List.of("MODERATOR", "USER")))));
+
+        assertEquals("user-id", token.getName());
+        assertEquals(Set.of("ROLE_MODERATOR", "ROLE_USER"), authorityNames(token.getAuthorities()));
+    }
+
+    @Test
+    void convert_ReturnsNoAuthoritiesWhenRealmAccessIsMissing() {
+        AbstractAuthenticationToken token = converter.convert(jwt("token-1", NOW.plusSeconds(60), claims -> {
+        }));
+
+        assertTrue(token.getAuthorities().isEmpty());
+    }
+
+    @Test
+    void convert_ReturnsNoAuthoritiesWhenRolesAreMissing() {
+        AbstractAuthenticationToken token = converter.convert(jwt("token-1", NOW.plusSeconds(60),
+                claims -> claims.put("realm_access", Map.of())));
+
+        assertTrue(token.getAuthorities().isEmpty());
+    }
+
+    @Test
+    void resolveAuthorities_SharesOneSetBetweenTokensWithTheSameRoles() {
+        Consumer<Map<String, Object>> roles = claims -> claims.put("realm_access", Map.of("roles", List.of("MODERATOR")));
+
+        Set<GrantedAuthority> first = converter.resolveAuthorities(jwt("token-1", NOW.plusSeconds(60), roles));
+        Set<GrantedAuthority> second = converter.resolveAuthorities(jwt("token-2", NOW.plusSeconds(60), roles));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void resolveAuthorities_ServesRepeatedTokenIdFromCache() {
+        Set<GrantedAuthority> first = converter.resolveAuthorities(jwt("token-1", NOW.plusSeconds(60),
+                claims -> claims.put("realm_access", Map.of("roles", List.of("MODERATOR")))));
+        Set<GrantedAuthority> second = converter.resolveAuthorities(jwt("token-1", NOW.plusSeconds(60),
+                claims -> claims.put("realm_access", Map.of("roles", List.of("USER")))));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void resolveAuthorities_DoesNotCacheExpiredTokens() {
+        converter.resolveAuthorities(jwt("token-1", NOW.minusSeconds(1),
+                claims -> claims.put("realm_access", Map.of("roles", List.of("MODERATOR")))));
+        Set<GrantedAuthority> second = converter.resolveAuthorities(jwt("token-1", NOW.minusSeconds(1),
+                claims -> claims.put("realm_access", Map.of("roles", List.of("USER")))));
+
+        assertEquals(Set.of("ROLE_USER"), authorityNames(second));
+    }
+
+    private static Jwt jwt(String tokenId, Instant expiresAt, Consumer<Map<String, Object>> claims) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("user-id")
+                .jti(tokenId)
+                .issuedAt(expiresAt.minusSeconds(300))
+                .expiresAt(expiresAt)
+                .claims(claims)
+                .build();
+    }
+
+    private static Set<String> authorityNames(Collection<? extends GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,272 @@
+package com.itm.space.backendresources.security;
+
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import com.itm.space.backendresources.support.KeycloakStub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.JacksonProvider;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.HttpHeaders;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class KeycloakTokenManagerTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-01-01T00:00:00Z"));
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    };
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ScheduledExecutorService refreshExecutor = mock(ScheduledExecutorService.class);
+    private final AtomicInteger grants = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void backgroundRefreshIsScheduledAheadOfExpiry() {
+        KeycloakTokenManager manager = manager(() -> token(300));
+
+        manager.refresh();
+
+        assertEquals("token-1", manager.getAccessToken());
+        assertEquals(0.0, waits());
+        verify(refreshExecutor).schedule(any(Runnable.class), eq(270_000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shortLivedTokenIsRefreshedHalfwayThrough() {
+        KeycloakTokenManager manager = manager(() -> token(40));
+
+        manager.refresh();
+
+        verify(refreshExecutor).schedule(any(Runnable.class), eq(20_000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void requestFetchesTokenOnlyWhenCurrentOneExpired() {
+        KeycloakTokenManager manager = manager(() -> token(60));
+        manager.refresh();
+        now.set(now.get().plusSeconds(30));
+
+        assertEquals("token-1", manager.getAccessToken());
+
+        now.set(now.get().plusSeconds(30));
+        assertEquals("token-2", manager.getAccessToken());
+        assertEquals(1.0, waits());
+    }
+
+    @Test
+    void failedRefreshBacksOffAndRequestsFailFastMeanwhile() {
+        KeycloakTokenManager manager = manager(() -> {
+            grants.incrementAndGet();
+            throw new ServiceUnavailableException();
+        });
+
+        manager.refresh();
+        verify(refreshExecutor).schedule(any(Runnable.class), eq(1_000L), eq(TimeUnit.MILLISECONDS));
+        assertThrows(ServiceUnavailableException.class, manager::getAccessToken);
+        assertEquals(1, grants.get());
+
+        now.set(now.get().plusSeconds(1));
+        manager.refresh();
+        verify(refreshExecutor).schedule(any(Runnable.class), eq(2_000L), eq(TimeUnit.MILLISECONDS));
+        assertEquals(2, grants.get());
+        assertEquals(2, meterRegistry.get("keycloak.token.refresh").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void concurrentRequestsShareOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        KeycloakTokenManager manager = manager(() -> {
+            await(release);
+            return token(300);
+        });
+
+        List<CompletableFuture<String>> tokens = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tokens.add(CompletableFuture.supplyAsync(manager::getAccessToken, executor));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        for (CompletableFuture<String> token : tokens) {
+            assertEquals("token-1", token.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, grants.get());
+    }
+
+    @Test
+    void adminCallsCarryTheManagedToken() throws Exception {
+        try (KeycloakStub stub = new KeycloakStub()) {
+            TokenService tokenService = resteasyClient().target(stub.authServerUrl()).proxy(TokenService.class);
+            Form clientCredentials = new Form()
+                    .param("grant_type", "client_credentials")
+                    .param("client_id", "backend-resources")
+                    .param("client_secret", "secret");
+            AtomicReference<String> fetched = new AtomicReference<>();
+            KeycloakTokenManager manager = new KeycloakTokenManager(() -> {
+                AccessTokenResponse response = tokenService.grantToken(KeycloakStub.REALM, clientCredentials.asMap());
+                fetched.set(response.getToken());
+                return response;
+            }, Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(1), refreshExecutor,
+                    Clock.systemUTC(), meterRegistry);
+            List<Object> sent = new CopyOnWriteArrayList<>();
+            ResteasyClient client = resteasyClient();
+            client.register(manager, Priorities.USER + 100);
+            client.register((ClientRequestFilter) request ->
+                    sent.addAll(request.getHeaders().get(HttpHeaders.AUTHORIZATION)), Priorities.USER + 200);
+            Keycloak keycloak = KeycloakBuilder.builder()
+                    .serverUrl(stub.authServerUrl())
+                    .realm(KeycloakStub.REALM)
+                    .authorization("placeholder")
+                    .resteasyClient(client)
+                    .build();
+
+            keycloak.realm(KeycloakStub.REALM).users().get(UUID.randomUUID().toString()).toRepresentation();
+
+            assertEquals(List.of("Bearer " + fetched.get()), sent);
+            keycloak.close();
+        }
+    }
+
+    @Test
+    void adminCallsWithoutTokenFailWith503() throws Exception {
+        try (KeycloakStub stub = new KeycloakStub()) {
+            KeycloakTokenManager manager = manager(() -> {
+                grants.incrementAndGet();
+                throw new ProcessingException("Connection refused");
+            });
+            ResteasyClient client = resteasyClient();
+            client.register(manager, Priorities.USER + 100);
+            Keycloak keycloak = KeycloakBuilder.builder()
+                    .serverUrl(stub.authServerUrl())
+                    .realm(KeycloakStub.REALM)
+                    .authorization("placeholder")
+                    .resteasyClient(client)
+                    .build();
+            UserResource user = keycloak.realm(KeycloakStub.REALM).users().get(UUID.randomUUID().toString());
+
+            ServiceUnavailableException fetchFailed = assertThrows(ServiceUnavailableException.class,
+                    user::toRepresentation);
+            ServiceUnavailableException backingOff = assertThrows(ServiceUnavailableException.class,
+                    user::toRepresentation);
+
+            assertTrue(KeycloakTokenManager.isTokenUnavailable(fetchFailed));
+            assertTrue(KeycloakTokenManager.isTokenUnavailable(backingOff));
+            assertFalse(KeycloakResilience.isUpstreamFailure(backingOff));
+            assertFalse(KeycloakTokenManager.isTokenUnavailable(new ServiceUnavailableException()));
+            assertEquals(1, grants.get());
+            keycloak.close();
+        }
+    }
+
+    @Test
+    void waitingForAFetchDoesNotPinVirtualThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        KeycloakTokenManager manager = manager(() -> {
+            await(release);
+            return token(300);
+        });
+
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 4 * Runtime.getRuntime().availableProcessors() + 1; i++) {
+                tokens.add(virtualThreads.submit(manager::getAccessToken));
+            }
+            Future<Boolean> unblocked = virtualThreads.submit(() -> true);
+            assertTrue(unblocked.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<String> token : tokens) {
+                assertEquals("token-1", token.get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    private KeycloakTokenManager manager(Supplier<AccessTokenResponse> tokenEndpoint) {
+        return new KeycloakTokenManager(tokenEndpoint, Duration.ofSeconds(30), Duration.ofSeconds(1),
+                Duration.ofMinutes(1), refreshExecutor, clock, meterRegistry);
+    }
+
+    private AccessTokenResponse token(long expiresIn) {
+        AccessTokenResponse response = new AccessTokenResponse();
+        response.setToken("token-" + grants.incrementAndGet());
+        response.setExpiresIn(expiresIn);
+        return response;
+    }
+
+    private double waits() {
+        return meterRegistry.get("keycloak.token.waits").counter().count();
+    }
+
+    private static ResteasyClient resteasyClient() {
+        return ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                .register(JacksonProvider.class, 100)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
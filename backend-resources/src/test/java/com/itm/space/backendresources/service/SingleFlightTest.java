@@ -0,0 +1,57 @@
+package com.itm.space.backendresources.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void execute_CoalescesConcurrentCallsForSameKey() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("id", key -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = singleFlight.execute("id", key -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        upstream.complete("value");
+
+        assertSame(first, second);
+        assertEquals("value", second.join());
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void execute_StartsNewCallOncePreviousCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("id", key -> CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+        String second = singleFlight.execute("id",
+                key -> CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+
+        assertEquals("v2", second);
+    }
+
+    @Test
+    void execute_PropagatesFailureAndForgetsKey() {
+        CompletableFuture<String> failed = singleFlight.execute("id", key -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, singleFlight.inFlight());
+    }
+}
@@ -1,9 +1,23 @@
 package com.itm.space.backendresources.service;
 
+import com.itm.space.backendresources.api.request.UserDetail;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UsersResponse;
+import com.itm.space.backendresources.cache.NoOpUserCache;
+import com.itm.space.backendresources.cache.UserCache;
 import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.metrics.KeycloakMetrics;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +29,7 @@ import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -23,9 +38,14 @@ import org.springframework.http.HttpStatus;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -52,18 +72,66 @@ class UserServiceImplTest {
     @Mock
     private RoleMappingResource roleMappingResource;
 
+    @Spy
+    private UserCache userCache = new NoOpUserCache();
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private KeycloakMetrics keycloakMetrics = new KeycloakMetrics(meterRegistry);
+
+    @Spy
+    private KeycloakResilience keycloakResilience = KeycloakResilience.none();
+
+    @Mock
+    private MembershipIndex membershipIndex;
 
     @InjectMocks
     private UserServiceImpl userService;
 
     private final String realm = "ITM";
 
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    private final ExecutorService batchExecutor = Executors.newFixedThreadPool(2);
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @BeforeEach
     void setUp() throws Exception {
-        java.lang.reflect.Field realmField = UserServiceImpl.class.getDeclaredField("realm");
-        realmField.setAccessible(true);
-        realmField.set(userService, realm);
+        setField(userService, "realm", realm);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        java.lang.reflect.Field field = UserServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private long upstreamCalls(String operation, String status) {
+        return meterRegistry.get(KeycloakMetrics.REQUESTS)
+                .tag("operation", operation)
+                .tag("status", status)
+                .timer()
+                .count();
+    }
+
+    private UserServiceImpl concurrentUserService() throws Exception {
+        UserServiceImpl service = new UserServiceImpl(keycloakClient, userMapper, executor, userCache, executor, new UserRequestValidator(validator), batchExecutor, keycloakMetrics, keycloakResilience, membershipIndex);
+        setField(service, "realm", realm);
+        setField(service, "concurrentLookup", true);
+        setField(service, "lookupTimeout", Duration.ofSeconds(5));
+        setField(service, "provisioningConcurrency", 2);
+        setField(service, "maxBatchSize", 10);
+        setField(service, "maxPageSize", 10);
+        setField(service, "streamPageSize", 2);
+        return service;
     }
 
     @Test
@@ -99,6 +167,7 @@ class UserServiceImplTest {
                 () -> userService.createUser(userRequest));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        assertEquals(1, upstreamCalls("create_user", "400"));
     }
 
     @Test
@@ -133,6 +202,9 @@ class UserServiceImplTest {
 
         assertEquals(expectedResponse, actualResponse);
         verify(userResource, times(1)).toRepresentation();
+        assertEquals(1, upstreamCalls("get_user", "200"));
+        assertEquals(1, upstreamCalls("get_roles", "200"));
+        assertEquals(1, upstreamCalls("get_groups", "200"));
     }
 
     @Test
@@ -149,4 +221,239 @@ class UserServiceImplTest {
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getHttpStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUserById_OpenCircuit_PropagatesRejection() {
+        UUID userId = UUID.randomUUID();
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("keycloak");
+        circuitBreaker.transitionToOpenState();
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(userId.toString())).thenReturn(userResource);
+        doThrow(CallNotPermittedException.createCallNotPermittedException(circuitBreaker))
+                .when(keycloakResilience).hedgedRead(any());
+
+        assertThrows(CallNotPermittedException.class, () -> userService.getUserById(userId));
+        verify(userResource, never()).toRepresentation();
+    }
+
+    @Test
+    void getUserById_ConcurrentLookup_Success() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserRepresentation userRepresentation = new UserRepresentation();
+        List<RoleRepresentation> roles = Collections.emptyList();
+        List<GroupRepresentation> groups = Collections.emptyList();
+        UserResponse expectedResponse = new UserResponse(
+                "John", "Doe", "test@example.com", Collections.emptyList(), Collections.emptyList());
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(userId.toString())).thenReturn(userResource);
+        when(userResource.toRepresentation()).thenReturn(userRepresentation);
+        MappingsRepresentation mappingsRepresentation = mock(MappingsRepresentation.class);
+        when(userResource.roles()).thenReturn(roleMappingResource);
+        when(roleMappingResource.getAll()).thenReturn(mappingsRepresentation);
+        when(mappingsRepresentation.getRealmMappings()).thenReturn(roles);
+        when(userResource.groups()).thenReturn(groups);
+        when(userMapper.userRepresentationToUserResponse(userRepresentation, roles, groups))
+                .thenReturn(expectedResponse);
+
+        UserResponse actualResponse = concurrentUserService().getUserById(userId);
+
+        assertEquals(expectedResponse, actualResponse);
+        verify(usersResource, times(1)).get(userId.toString());
+        verify(userResource, times(1)).toRepresentation();
+        verify(userResource, times(1)).groups();
+    }
+
+    @Test
+    void getUserById_ConcurrentLookup_Failure() throws Exception {
+        UUID userId = UUID.randomUUID();
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(userId.toString())).thenReturn(userResource);
+        when(userResource.toRepresentation()).thenThrow(new WebApplicationException("Not found", 404));
+
+        BackendResourcesException exception = assertThrows(
+                BackendResourcesException.class,
+                () -> concurrentUserService().getUserById(userId));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getHttpStatus());
+        assertEquals("Not found", exception.getMessage());
+    }
+
+    @Test
+    void createUsers_ReturnsResultPerInputIndex() throws Exception {
+        UserRequest created = new UserRequest("created", "created@example.com", "password", "John", "Doe");
+        UserRequest invalid = new UserRequest("a", "invalid-email", "password", "John", "Doe");
+        UserRequest conflict = new UserRequest("conflict", "conflict@example.com", "password", "John", "Doe");
+        Response response = mock(Response.class);
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(response.getStatus()).thenReturn(201);
+        when(response.getStatusInfo()).thenReturn(Response.Status.CREATED);
+        when(response.getLocation()).thenReturn(
+                URI.create("http://test/auth/admin/realms/ITM/users/2f1c2b2e-6d0a-4a39-9d4c-6f3f8e1d2a10"));
+        when(usersResource.create(argThat(user -> user != null && "created".equals(user.getUsername()))))
+                .thenReturn(response);
+        when(usersResource.create(argThat(user -> user != null && "conflict".equals(user.getUsername()))))
+                .thenThrow(new WebApplicationException("Conflict", 409));
+
+        Map<Integer, UserCreationResult> results = concurrentUserService()
+                .createUsers(List.of(created, invalid, conflict).iterator());
+
+        assertEquals(3, results.size());
+        assertEquals(UserCreationResult.created("2f1c2b2e-6d0a-4a39-9d4c-6f3f8e1d2a10"), results.get(0));
+        assertEquals(400, results.get(1).getStatus());
+        assertTrue(results.get(1).getErrors().containsKey("username"));
+        assertTrue(results.get(1).getErrors().containsKey("email"));
+        assertEquals(409, results.get(2).getStatus());
+        verify(usersResource, times(2)).create(any());
+    }
+
+    @Test
+    void getUsersByIds_DedupesIdsAndReportsMisses() throws Exception {
+        UUID foundId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        UserResource missingResource = mock(UserResource.class);
+        UserRepresentation userRepresentation = new UserRepresentation();
+        List<RoleRepresentation> roles = Collections.emptyList();
+        List<GroupRepresentation> groups = Collections.emptyList();
+        UserResponse expectedResponse = new UserResponse(
+                "John", "Doe", "test@example.com", Collections.emptyList(), Collections.emptyList());
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(foundId.toString())).thenReturn(userResource);
+        when(usersResource.get(missingId.toString())).thenReturn(missingResource);
+        when(userResource.toRepresentation()).thenReturn(userRepresentation);
+        MappingsRepresentation mappingsRepresentation = mock(MappingsRepresentation.class);
+        when(userResource.roles()).thenReturn(roleMappingResource);
+        when(roleMappingResource.getAll()).thenReturn(mappingsRepresentation);
+        when(mappingsRepresentation.getRealmMappings()).thenReturn(roles);
+        when(userResource.groups()).thenReturn(groups);
+        when(missingResource.toRepresentation()).thenThrow(new WebApplicationException("HTTP 404 Not Found", 404));
+        when(userMapper.userRepresentationToUserResponse(userRepresentation, roles, groups))
+                .thenReturn(expectedResponse);
+
+        UsersResponse response = concurrentUserService().getUsersByIds(List.of(foundId, missingId, foundId));
+
+        assertEquals(Map.of(foundId, expectedResponse), response.getUsers());
+        assertEquals(Map.of(missingId, "HTTP 404 Not Found"), response.getMisses());
+        verify(usersResource, times(1)).get(foundId.toString());
+    }
+
+    @Test
+    void getUsersByIds_TooManyIds() throws Exception {
+        List<UUID> ids = java.util.stream.Stream.generate(UUID::randomUUID).limit(11).toList();
+
+        BackendResourcesException exception = assertThrows(
+                BackendResourcesException.class,
+                () -> concurrentUserService().getUsersByIds(ids));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+    }
+
+    @Test
+    void getUserById_WithoutDetails_MakesSingleUpstreamCall() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserRepresentation userRepresentation = new UserRepresentation();
+        UserResponse expectedResponse = new UserResponse("John", "Doe", "test@example.com", null, null);
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(userId.toString())).thenReturn(userResource);
+        when(userResource.toRepresentation()).thenReturn(userRepresentation);
+        when(userMapper.userRepresentationToUserResponse(userRepresentation, null, null))
+                .thenReturn(expectedResponse);
+
+        UserResponse actualResponse = concurrentUserService().getUserById(userId, Set.of());
+
+        assertEquals(expectedResponse, actualResponse);
+        verify(userResource, times(1)).toRepresentation();
+        verify(userResource, never()).roles();
+        verify(userResource, never()).groups();
+    }
+
+    @Test
+    void getUserById_WithDetails_ProjectsCachedUser() {
+        UUID userId = UUID.randomUUID();
+        UserResponse cached = new UserResponse("John", "Doe", "test@example.com", List.of("user"), List.of("group"));
+        UserResponse projected = new UserResponse("John", "Doe", "test@example.com", List.of("user"), null);
+
+        when(userCache.getIfPresent(userId)).thenReturn(cached);
+        when(userMapper.project(cached, Set.of(UserDetail.ROLES))).thenReturn(projected);
+
+        assertEquals(projected, userService.getUserById(userId, Set.of(UserDetail.ROLES)));
+        verifyNoInteractions(keycloakClient);
+    }
+
+    @Test
+    void searchUsers_MapsPageWithoutDetails() throws Exception {
+        UserRepresentation userRepresentation = new UserRepresentation();
+        UserResponse expectedResponse = new UserResponse("John", "Doe", "test@example.com", null, null);
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.search("john", 20, 10, true)).thenReturn(List.of(userRepresentation));
+        when(userMapper.userRepresentationToUserResponse(userRepresentation, null, null))
+                .thenReturn(expectedResponse);
+
+        assertEquals(List.of(expectedResponse), concurrentUserService().searchUsers("john", 20, 10));
+        assertEquals(1, upstreamCalls("list_users", "200"));
+    }
+
+    @Test
+    void searchUsers_PageTooLarge() throws Exception {
+        BackendResourcesException exception = assertThrows(
+                BackendResourcesException.class,
+                () -> concurrentUserService().searchUsers(null, 0, 11));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verifyNoInteractions(keycloakClient);
+    }
+
+    @Test
+    void streamUsers_WalksPagesUntilShortPage() throws Exception {
+        UserRepresentation userRepresentation = new UserRepresentation();
+        UserResponse mapped = new UserResponse("John", "Doe", "test@example.com", null, null);
+
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.search(null, 0, 2, true)).thenReturn(List.of(userRepresentation, userRepresentation));
+        when(usersResource.search(null, 2, 2, true)).thenReturn(List.of(userRepresentation));
+        when(userMapper.userRepresentationToUserResponse(userRepresentation, null, null)).thenReturn(mapped);
+
+        List<List<UserResponse>> pages = new java.util.ArrayList<>();
+        concurrentUserService().streamUsers(null, pages::add);
+
+        assertEquals(List.of(List.of(mapped, mapped), List.of(mapped)), pages);
+        verify(usersResource, never()).search(null, 4, 2, true);
+    }
+
+    @Test
+    void getUserById_ReadyMembershipIndex_MakesSingleUpstreamCall() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UserRepresentation userRepresentation = new UserRepresentation();
+        List<String> roles = List.of("MODERATOR");
+        List<String> groups = List.of("Moderators");
+        UserResponse expectedResponse = new UserResponse("John", "Doe", "test@example.com", roles, groups);
+
+        when(membershipIndex.isReady()).thenReturn(true);
+        when(membershipIndex.roles(userId)).thenReturn(roles);
+        when(membershipIndex.groups(userId)).thenReturn(groups);
+        when(keycloakClient.realm(realm)).thenReturn(realmResource);
+        when(realmResource.users()).thenReturn(usersResource);
+        when(usersResource.get(userId.toString())).thenReturn(userResource);
+        when(userResource.toRepresentation()).thenReturn(userRepresentation);
+        when(userMapper.userRepresentationToUserResponseWithNames(userRepresentation, roles, groups))
+                .thenReturn(expectedResponse);
+
+        assertEquals(expectedResponse, concurrentUserService().getUserById(userId));
+        verify(userResource, never()).roles();
+        verify(userResource, never()).groups();
+    }
+}
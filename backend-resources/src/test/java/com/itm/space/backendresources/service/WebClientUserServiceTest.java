@@ -0,0 +1,270 @@
+package com.itm.space.backendresources.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.itm.space.backendresources.api.request.UserDetail;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.cache.CaffeineUserCache;
+import com.itm.space.backendresources.cache.NoOpUserCache;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.replica.MembershipIndex;
+import com.itm.space.backendresources.resilience.KeycloakResilience;
+import jakarta.validation.Validation;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebClientUserServiceTest {
+
+    private static final String REALM_PATH = "/auth/admin/realms/ITM";
+
+    private final MockWebServer keycloak = new MockWebServer();
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicInteger adminRequests = new AtomicInteger();
+    private final UUID userId = UUID.randomUUID();
+    private volatile boolean tokenFailing;
+
+    private WebClientUserService userService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keycloak.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.equals("/auth/realms/ITM/protocol/openid-connect/token")) {
+                    tokenRequests.incrementAndGet();
+                    if (tokenFailing) {
+                        return new MockResponse().setResponseCode(503);
+                    }
+                    return json("{\"access_token\":\"token\",\"expires_in\":300}");
+                }
+                adminRequests.incrementAndGet();
+                if (!"Bearer token".equals(request.getHeader("Authorization"))) {
+                    return new MockResponse().setResponseCode(401);
+                }
+                if (path.equals(REALM_PATH + "/users/" + userId)) {
+                    return json("{\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"john.doe@example.com\"}");
+                }
+                if (path.equals(REALM_PATH + "/users/" + userId + "/role-mappings/realm")) {
+                    return json("[{\"name\":\"MODERATOR\"}]");
+                }
+                if (path.equals(REALM_PATH + "/users/" + userId + "/groups")) {
+                    return json("[{\"name\":\"Moderators\"}]");
+                }
+                if (path.startsWith(REALM_PATH + "/users?search=stalled")) {
+                    return json("[]").setHeadersDelay(2, TimeUnit.SECONDS);
+                }
+                if (path.startsWith(REALM_PATH + "/users?")) {
+                    int first = Integer.parseInt(request.getRequestUrl().queryParameter("first"));
+                    return json(first == 0
+                            ? "[{\"firstName\":\"John\"},{\"firstName\":\"Jane\"}]"
+                            : "[{\"firstName\":\"Jim\"}]");
+                }
+                if (path.equals(REALM_PATH + "/users") && request.getMethod().equals("POST")) {
+                    String body = request.getBody().readUtf8();
+                    if (body.contains("\"username\":\"taken\"")) {
+                        return new MockResponse().setResponseCode(409);
+                    }
+                    if (body.contains("\"username\":\"legacy\"")) {
+                        return new MockResponse().setResponseCode(201)
+                                .setHeader("Location", "http://keycloak" + REALM_PATH + "/users/legacy-id");
+                    }
+                    return new MockResponse().setResponseCode(201)
+                            .setHeader("Location", "http://keycloak" + REALM_PATH + "/users/" + userId);
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        keycloak.start();
+
+        userService = new WebClientUserService(
+                WebClient.create(keycloak.url("/auth").toString()),
+                Mappers.getMapper(UserMapper.class),
+                new NoOpUserCache(),
+                new UserRequestValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                MembershipIndex.disabled(),
+                KeycloakResilience.none());
+        configure();
+    }
+
+    private void configure() throws Exception {
+        setField("realm", "ITM");
+        setField("clientId", "backend-resources");
+        setField("secretKey", "secret");
+        setField("minTokenBackoff", Duration.ofSeconds(1));
+        setField("maxTokenBackoff", Duration.ofMinutes(1));
+        setField("lookupTimeout", Duration.ofSeconds(5));
+        setField("maxBatchSize", 10);
+        setField("batchConcurrency", 2);
+        setField("provisioningConcurrency", 2);
+        setField("maxPageSize", 10);
+        setField("streamPageSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        keycloak.shutdown();
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        java.lang.reflect.Field field = WebClientUserService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(userService, value);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    @Test
+    void getUserByIdAsync_FetchesRepresentationRolesAndGroups() {
+        UserResponse response = userService.getUserByIdAsync(userId).join();
+
+        assertEquals(new UserResponse("John", "Doe", "john.doe@example.com",
+                List.of("MODERATOR"), List.of("Moderators")), response);
+        assertEquals(3, adminRequests.get());
+    }
+
+    @Test
+    void getUserById_ReusesTokenUntilExpiry() {
+        userService.getUserById(userId);
+        userService.getUserById(userId);
+
+        assertEquals(1, tokenRequests.get());
+    }
+
+    @Test
+    void getUserById_WithoutDetails_MakesSingleAdminCall() {
+        UserResponse response = userService.getUserById(userId, Set.of());
+
+        assertNull(response.getRoles());
+        assertNull(response.getGroups());
+        assertEquals(1, adminRequests.get());
+    }
+
+    @Test
+    void getUserById_UnknownUser_MapsToBackendResourcesException() {
+        BackendResourcesException exception = assertThrows(BackendResourcesException.class,
+                () -> userService.getUserById(UUID.randomUUID(), Set.of(UserDetail.ROLES)));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getHttpStatus());
+    }
+
+    @Test
+    void createUser_Conflict_MapsUpstreamStatus() {
+        UserRequest userRequest = new UserRequest("taken", "taken@example.com", "password", "John", "Doe");
+
+        BackendResourcesException exception = assertThrows(BackendResourcesException.class,
+                () -> userService.createUser(userRequest));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getHttpStatus());
+    }
+
+    @Test
+    void createUser_NonUuidId_ReturnsIdWithoutInvalidatingCache() {
+        UserRequest userRequest = new UserRequest("legacy", "legacy@example.com", "password", "John", "Doe");
+
+        assertEquals("legacy-id", userService.createUser(userRequest));
+    }
+
+    @Test
+    void createUser_KeycloakUnreachable_MapsToServiceUnavailable() throws IOException {
+        keycloak.shutdown();
+        UserRequest userRequest = new UserRequest("john", "john@example.com", "password", "John", "Doe");
+
+        BackendResourcesException exception = assertThrows(BackendResourcesException.class,
+                () -> userService.createUser(userRequest));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+    }
+
+    @Test
+    void getUserById_TokenEndpointFailing_BacksOffInsteadOfRetryingEveryCall() {
+        tokenFailing = true;
+
+        for (int i = 0; i < 5; i++) {
+            BackendResourcesException exception = assertThrows(BackendResourcesException.class,
+                    () -> userService.getUserById(userId));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+        }
+
+        assertEquals(1, tokenRequests.get());
+        assertEquals(0, adminRequests.get());
+    }
+
+    @Test
+    void getUserById_LoadsThroughUserCache() throws Exception {
+        userService = new WebClientUserService(
+                WebClient.create(keycloak.url("/auth").toString()),
+                Mappers.getMapper(UserMapper.class),
+                new CaffeineUserCache(100, Duration.ofMinutes(5), Duration.ZERO, Runnable::run, Ticker.systemTicker()),
+                new UserRequestValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                MembershipIndex.disabled(),
+                KeycloakResilience.none());
+        configure();
+
+        UserResponse first = userService.getUserById(userId);
+        UserResponse second = userService.getUserById(userId);
+        UserResponse projected = userService.getUserById(userId, Set.of(UserDetail.ROLES));
+
+        assertEquals(first, second);
+        assertEquals(List.of("MODERATOR"), projected.getRoles());
+        assertEquals(3, adminRequests.get());
+    }
+
+    @Test
+    void searchUsers_StalledKeycloak_TimesOut() throws Exception {
+        setField("lookupTimeout", Duration.ofMillis(200));
+
+        BackendResourcesException exception = assertThrows(BackendResourcesException.class,
+                () -> userService.searchUsers("stalled", 0, 10));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getHttpStatus());
+    }
+
+    @Test
+    void createUsers_ReturnsResultPerInputIndex() {
+        UserRequest created = new UserRequest("created", "created@example.com", "password", "John", "Doe");
+        UserRequest invalid = new UserRequest("a", "invalid-email", "password", "John", "Doe");
+
+        Map<Integer, UserCreationResult> results = userService.createUsers(List.of(created, invalid).iterator());
+
+        assertEquals(userId.toString(), results.get(0).getId());
+        assertEquals(400, results.get(1).getStatus());
+    }
+
+    @Test
+    void streamUsers_RequestsPagesUntilShortPage() throws Exception {
+        List<List<String>> pages = new ArrayList<>();
+
+        userService.streamUsers("j", page -> pages.add(page.stream().map(UserResponse::getFirstName).toList()));
+
+        assertEquals(List.of(List.of("John", "Jane"), List.of("Jim")), pages);
+        keycloak.takeRequest();
+        RecordedRequest firstPage = keycloak.takeRequest();
+        assertEquals("j", firstPage.getRequestUrl().queryParameter("search"));
+        assertEquals("true", firstPage.getRequestUrl().queryParameter("briefRepresentation"));
+    }
+}
@@ -0,0 +1,166 @@
+package com.itm.space.backendresources.support;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for the Keycloak endpoints of the ITM realm: OIDC discovery, JWK set,
+ * client-credentials token, and the admin user endpoints. Admin calls answer with a fixed user
+ * after {@code latency} and fail with {@code errorStatus} for an {@code errorRate} fraction of
+ * requests. {@link #issueToken} signs access tokens the resource server accepts.
+ */
+public class KeycloakStub implements AutoCloseable {
+
+    public static final String REALM = "ITM";
+
+    static {
+        // Without TCP_NODELAY, keep-alive responses stall ~40 ms on delayed ACKs.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RSAKey signingKey;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+
+    public KeycloakStub() throws IOException {
+        try {
+            signingKey = new RSAKeyGenerator(2048).keyID("stub").generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+        String realmPath = "/auth/realms/" + REALM;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext(realmPath + "/.well-known/openid-configuration", exchange ->
+                respond(exchange, 200, """
+                        {"issuer":"%s","jwks_uri":"%s/protocol/openid-connect/certs",\
+                        "token_endpoint":"%s/protocol/openid-connect/token"}"""
+                        .formatted(issuer(), issuer(), issuer())));
+        server.createContext(realmPath + "/protocol/openid-connect/certs", exchange ->
+                respond(exchange, 200, new JWKSet(signingKey.toPublicJWK()).toString()));
+        server.createContext(realmPath + "/protocol/openid-connect/token", exchange ->
+                respond(exchange, 200, "{\"access_token\":\"%s\",\"expires_in\":3600,\"token_type\":\"Bearer\"}"
+                        .formatted(issueToken("service-account-backend-resources", List.of()))));
+        server.createContext("/auth/admin/realms/" + REALM + "/users", this::handleAdmin);
+        server.start();
+    }
+
+    public String authServerUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/auth";
+    }
+
+    public String issuer() {
+        return authServerUrl() + "/realms/" + REALM;
+    }
+
+    public KeycloakStub latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public KeycloakStub errors(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Signs an RS256 access token for {@code subject} carrying {@code roles} as realm roles,
+     * valid for one hour.
+     */
+    public String issueToken(String subject, List<String> roles) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer())
+                .subject(subject)
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+                .claim("realm_access", Map.of("roles", roles))
+                .build();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(signingKey));
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleAdmin(HttpExchange exchange) throws IOException {
+        sleep(latency);
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            respond(exchange, errorStatus, "{\"error\":\"injected\"}");
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        if ("POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Location",
+                    "http://127.0.0.1:" + server.getAddress().getPort() + path + "/" + UUID.randomUUID());
+            respond(exchange, 201, "");
+        } else if (path.endsWith("/role-mappings")) {
+            respond(exchange, 200, "{\"realmMappings\":[{\"name\":\"MODERATOR\"}]}");
+        } else if (path.endsWith("/role-mappings/realm")) {
+            respond(exchange, 200, "[{\"name\":\"MODERATOR\"}]");
+        } else if (path.endsWith("/groups")) {
+            respond(exchange, 200, "[{\"name\":\"Moderators\"}]");
+        } else {
+            respond(exchange, 200,
+                    "{\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"john.doe@example.com\"}");
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.itm.space.backendresources.support;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Open-model HTTP load generator: requests are started on a fixed schedule regardless of how
+ * long earlier ones take, and latency is measured from the scheduled start, so a stalled server
+ * shows up in the percentiles instead of silently lowering the request rate.
+ */
+public class LoadGenerator {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LoadGenerator() {
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public Report run(String name, int requestsPerSecond, Duration duration, Supplier<HttpRequest> requests)
+            throws InterruptedException {
+        int total = (int) (requestsPerSecond * duration.toMillis() / 1000);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long[] latencies = new long[total];
+        AtomicInteger recorded = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            HttpRequest request = requests.get();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        if (ex != null || response.statusCode() >= 400) {
+                            errors.increment();
+                        }
+                        latencies[recorded.getAndIncrement()] = System.nanoTime() - scheduledAt;
+                    });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (recorded.get() < total && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return new Report(name, requestsPerSecond, duration, Arrays.copyOf(latencies, recorded.get()),
+                total - recorded.get(), errors.sum());
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public record Report(String name, int targetRate, Duration duration, long[] latencies, int unfinished,
+                         long errors) {
+
+        public Report {
+            Arrays.sort(latencies);
+        }
+
+        public Duration percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Duration.ZERO;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return Duration.ofNanos(latencies[Math.max(0, Math.min(index, latencies.length - 1))]);
+        }
+
+        public double errorsPerSecond() {
+            return (errors + unfinished) / (duration.toMillis() / 1000.0);
+        }
+
+        @Override
+        public String toString() {
+            return "%-28s %5d req/s target  p50 %7.1f ms  p99 %7.1f ms  p999 %7.1f ms  %6.1f errors/s  (%d done, %d unfinished)"
+                    .formatted(name, targetRate, millis(percentile(50)), millis(percentile(99)),
+                            millis(percentile(99.9)), errorsPerSecond(), latencies.length, unfinished);
+        }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1_000_000.0;
+        }
+    }
+}